@@ -0,0 +1,62 @@
+package com.studyroom.config;
+
+import com.studyroom.model.Student;
+import com.studyroom.service.StudentService;
+import com.studyroom.util.AuthenticatedUser;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.MethodParameter;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+/**
+ * 把过滤器中已解析的登录用户转换成 {@link Student}，控制器不必再按用户名查询。
+ * 结果保存在请求属性里，同一请求内只解析一次。
+ */
+@Component
+@RequiredArgsConstructor
+public class CurrentStudentArgumentResolver implements HandlerMethodArgumentResolver {
+
+    private static final String ATTRIBUTE = CurrentStudentArgumentResolver.class.getName() + ".student";
+
+    private final StudentService studentService;
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return parameter.hasParameterAnnotation(CurrentStudent.class)
+                && Student.class.isAssignableFrom(parameter.getParameterType());
+    }
+
+    @Override
+    public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+                                  NativeWebRequest webRequest, WebDataBinderFactory binderFactory) {
+        Object resolved = webRequest.getAttribute(ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (resolved instanceof Student student) {
+            return student;
+        }
+        Student student = resolve(SecurityContextHolder.getContext().getAuthentication());
+        webRequest.setAttribute(ATTRIBUTE, student, RequestAttributes.SCOPE_REQUEST);
+        return student;
+    }
+
+    private Student resolve(Authentication authentication) {
+        if (authentication == null) {
+            throw new UsernameNotFoundException("Student not found");
+        }
+        if (authentication.getPrincipal() instanceof AuthenticatedUser user && user.isStudent()) {
+            // 只带主键、用户名和类型，足够用于预约校验和按学生查询
+            Student student = new Student();
+            student.setId(user.getId());
+            student.setUsername(user.getUsername());
+            student.setType(user.getStudentType());
+            return student;
+        }
+        return studentService.findByUsername(authentication.getName());
+    }
+}
@@ -0,0 +1,213 @@
+package com.studyroom.config;
+
+import com.studyroom.exception.ApiError;
+import com.studyroom.exception.ServiceOverloadedException;
+import com.studyroom.service.IdempotencyService;
+import com.studyroom.util.ErrorResponseWriter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Pattern;
+
+/**
+ * 预约与座位状态变更接口的 Idempotency-Key 支持。
+ * 带该请求头的重试直接返回第一次执行的响应，并发的重复请求只执行一次。
+ * 需要在 JWT 认证之后执行，key 按登录用户隔离。
+ */
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final Pattern IDEMPOTENT_PATHS =
+            Pattern.compile("/api/v1\\.0/student/seats/(book(/async)?|\\d+/(checkin|leave|release))");
+
+    private final IdempotencyService idempotencyService;
+    private final ErrorResponseWriter errorResponseWriter;
+    private final long waitTimeoutMillis;
+
+    public IdempotencyFilter(IdempotencyService idempotencyService,
+                             ErrorResponseWriter errorResponseWriter,
+                             Duration waitTimeout) {
+        this.idempotencyService = idempotencyService;
+        this.errorResponseWriter = errorResponseWriter;
+        this.waitTimeoutMillis = waitTimeout.toMillis();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"POST".equals(request.getMethod())
+                || request.getHeader(HEADER) == null
+                || !IDEMPOTENT_PATHS.matcher(path(request)).matches();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        String key = request.getHeader(HEADER);
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            errorResponseWriter.write(response, HttpServletResponse.SC_BAD_REQUEST,
+                    new ApiError("Invalid Idempotency-Key"));
+            return;
+        }
+
+        byte[] body = request.getInputStream().readAllBytes();
+        String owner = authentication.getName();
+        IdempotencyService.Claim claim;
+        try {
+            claim = idempotencyService.claim(owner, key, fingerprint(request, body));
+        } catch (ServiceOverloadedException e) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            errorResponseWriter.write(response, HttpServletResponse.SC_SERVICE_UNAVAILABLE, new ApiError(e.getMessage()));
+            return;
+        }
+        IdempotencyService.Execution execution = claim.execution();
+
+        if (!claim.leader()) {
+            replay(request, response, body, execution);
+            return;
+        }
+
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        try {
+            filterChain.doFilter(new CachedBodyRequest(request, body), wrapper);
+        } catch (IOException | ServletException | RuntimeException e) {
+            idempotencyService.abandon(owner, key, execution, e);
+            throw e;
+        }
+        idempotencyService.complete(owner, key, execution, new IdempotencyService.StoredResponse(
+                wrapper.getStatus(), wrapper.getContentType(), wrapper.getContentAsByteArray()));
+        wrapper.copyBodyToResponse();
+    }
+
+    private void replay(HttpServletRequest request,
+                        HttpServletResponse response,
+                        byte[] body,
+                        IdempotencyService.Execution execution) throws ServletException, IOException {
+        if (!execution.fingerprint().equals(fingerprint(request, body))) {
+            errorResponseWriter.write(response, 422,
+                    new ApiError("Idempotency-Key was already used for a different request"));
+            return;
+        }
+
+        IdempotencyService.StoredResponse stored;
+        try {
+            stored = idempotencyService.replay(execution, waitTimeoutMillis);
+        } catch (TimeoutException e) {
+            errorResponseWriter.write(response, HttpServletResponse.SC_CONFLICT,
+                    new ApiError("A request with this Idempotency-Key is still in progress"));
+            return;
+        } catch (ExecutionException e) {
+            throw new ServletException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServletException(e);
+        }
+
+        response.setStatus(stored.status());
+        if (stored.contentType() != null) {
+            response.setContentType(stored.contentType());
+        }
+        response.setHeader(REPLAYED_HEADER, "true");
+        response.setContentLength(stored.body().length);
+        response.getOutputStream().write(stored.body());
+    }
+
+    private static String path(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    private static String fingerprint(HttpServletRequest request, byte[] body) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((request.getMethod() + ' ' + path(request) + '\n').getBytes(StandardCharsets.UTF_8));
+            digest.update(body);
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 请求体已被读取用于计算摘要，后续处理从缓存的字节中读取
+     */
+    private static class CachedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream input = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return input.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                // 请求体已全部缓存，注册后立即通知可读与读取完毕
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    try {
+                        readListener.onDataAvailable();
+                        readListener.onAllDataRead();
+                    } catch (IOException e) {
+                        readListener.onError(e);
+                    }
+                }
+
+                @Override
+                public int read() {
+                    return input.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return input.read(b, off, len);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            return new BufferedReader(new InputStreamReader(getInputStream(), StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -1,15 +1,15 @@
 package com.studyroom.config;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.studyroom.service.CompositeUserDetailsService;
+import com.studyroom.service.TokenRevocationService;
+import com.studyroom.util.ErrorResponseWriter;
 import com.studyroom.util.JwtUtil;
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
-import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -18,7 +18,6 @@ import org.springframework.security.web.authentication.WebAuthenticationDetailsS
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 import java.io.IOException;
-import java.util.*;
 
 @Component
 @RequiredArgsConstructor
@@ -26,6 +25,8 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtUtil jwtUtil;
     private final UserDetailsService userDetailsService; // 使用接口而非具体实现
+    private final ErrorResponseWriter errorResponseWriter;
+    private final TokenRevocationService tokenRevocationService;
 
     @Override
     protected void doFilterInternal(
@@ -45,11 +46,21 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         // 直接使用 authHeader 作为 jwt，不需要移除 "Bearer " 前缀
         jwt = authHeader;
         try{
-            username = jwtUtil.extractUsername(jwt);
+            // 只验签解析一次，后续校验都基于同一份 claims
+            Claims claims = jwtUtil.extractAllClaims(jwt);
+            if (tokenRevocationService.isRevoked(claims.getId())) {
+                errorResponseWriter.writeRevokedToken(response);
+                return;
+            }
+            username = claims.getSubject();
             if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
+                // 新 token 自带主体类型和主键，直接构建用户；旧 token 才按用户名查询
+                UserDetails userDetails = jwtUtil.toPrincipal(claims);
+                if (userDetails == null) {
+                    userDetails = this.userDetailsService.loadUserByUsername(username);
+                }
 
-                if (jwtUtil.validateToken(jwt, userDetails.getUsername())) {
+                if (jwtUtil.validateToken(claims, userDetails.getUsername())) {
                     UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                             userDetails, null, userDetails.getAuthorities());
                     authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
@@ -58,13 +69,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             }
             filterChain.doFilter(request, response);
         }catch (ExpiredJwtException e){
-            response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
-            response.setContentType("application/json;charset=UTF-8");
-            Map<String, Object> errorDetails = new HashMap<>();
-            //errorDetails.put("status", HttpStatus.UNAUTHORIZED.value());
-            errorDetails.put("error", "Expired Login Token");
-            ObjectMapper mapper = new ObjectMapper();
-            response.getWriter().write(mapper.writeValueAsString(errorDetails));
+            errorResponseWriter.writeExpiredToken(response);
         }
 
     }
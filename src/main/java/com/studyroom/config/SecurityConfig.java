@@ -1,25 +1,35 @@
 package com.studyroom.config;
 
+import com.studyroom.util.AuthenticatedUser;
+import com.studyroom.util.PrincipalType;
 import com.studyroom.util.UserAccessDeniedHandler;
 import com.studyroom.util.UserAuthenticationEntryPoint;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authorization.AuthorizationDecision;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.annotation.web.configurers.HeadersConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import com.studyroom.service.IdempotencyService;
+import com.studyroom.service.TokenRevocationService;
+import com.studyroom.util.ErrorResponseWriter;
 import com.studyroom.util.JwtUtil;
 import org.springframework.security.core.userdetails.UserDetailsService;
 
+import java.time.Duration;
+
 @Configuration
 @EnableWebSecurity
 public class SecurityConfig {
@@ -30,6 +40,18 @@ public class SecurityConfig {
     @Autowired
     private UserDetailsService userDetailsService;
 
+    @Autowired
+    private ErrorResponseWriter errorResponseWriter;
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Value("${idempotency.wait-timeout:10s}")
+    private Duration idempotencyWaitTimeout;
+
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         http.csrf(AbstractHttpConfigurer::disable)
@@ -42,9 +64,16 @@ public class SecurityConfig {
                     .requestMatchers("/api/v1.0/admin/login").permitAll()
                     .requestMatchers("/api/v1.0/admin/**").authenticated()
                     .requestMatchers("/h2-console/**").permitAll()
+                    // 监控端点只对管理员开放，健康检查供负载均衡探测
+                    .requestMatchers("/actuator/health", "/actuator/health/**").permitAll()
+                    .requestMatchers("/actuator/**").access((authentication, context) ->
+                            new AuthorizationDecision(isAdmin(authentication.get())))
                     .anyRequest().permitAll()
             )
             .addFilterBefore(jwtAuthenticationFilter(), UsernamePasswordAuthenticationFilter.class)
+            // 在 JWT 认证之后执行，重复请求按登录用户区分
+            .addFilterAfter(new IdempotencyFilter(idempotencyService, errorResponseWriter, idempotencyWaitTimeout),
+                    UsernamePasswordAuthenticationFilter.class)
             .sessionManagement(session -> session
                 .sessionCreationPolicy(SessionCreationPolicy.STATELESS)
             );
@@ -52,8 +81,14 @@ public class SecurityConfig {
         return http.build();
     }
     
+    private static boolean isAdmin(Authentication authentication) {
+        return authentication != null
+                && authentication.getPrincipal() instanceof AuthenticatedUser user
+                && user.getType() == PrincipalType.ADMIN;
+    }
+
     @Bean
     public JwtAuthenticationFilter jwtAuthenticationFilter() {
-        return new JwtAuthenticationFilter(jwtUtil, userDetailsService);
+        return new JwtAuthenticationFilter(jwtUtil, userDetailsService, errorResponseWriter, tokenRevocationService);
     }
 }
\ No newline at end of file
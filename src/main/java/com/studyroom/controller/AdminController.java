@@ -5,14 +5,16 @@ import com.studyroom.model.Student;
 import com.studyroom.service.*;
 import com.studyroom.util.JwtUtil;
 import com.studyroom.dto.*;
+import com.studyroom.exception.LoginThrottledException;
+import com.studyroom.exception.ServiceOverloadedException;
 import com.studyroom.model.Booking;
 import com.studyroom.model.Room;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
@@ -30,32 +32,40 @@ public class AdminController {
     private final SeatService seatService;
     private final BookingService bookingService;
     private final JwtUtil jwtUtil;
-    private final AuthenticationManager authenticationManager;
+    private final LoginService loginService;
     private final StudentService studentService;
+    private final TokenRevocationService tokenRevocationService;
 
     @PostMapping("/login")
-    public ResponseEntity<?> login(@RequestBody LoginRequest loginRequest) {
+    public ResponseEntity<?> login(@RequestBody LoginRequest loginRequest, HttpServletRequest request) {
         try {
-            Authentication authentication = authenticationManager.authenticate(
-                    new UsernamePasswordAuthenticationToken(
-                            loginRequest.getUsername(),
-                            loginRequest.getPassword()
-                    )
+            Authentication authentication = loginService.authenticate(
+                    loginRequest.getUsername(),
+                    loginRequest.getPassword(),
+                    request.getRemoteAddr()
             );
 
             if (authentication.isAuthenticated()) {
-                String token = jwtUtil.generateToken(loginRequest.getUsername());
+                String token = jwtUtil.generateToken((UserDetails) authentication.getPrincipal());
                 return ResponseEntity.ok(new LoginResponse(token));
             } else {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                         .body(Map.of("error", "Invalid credentials"));
             }
+        } catch (ServiceOverloadedException | LoginThrottledException e) {
+            throw e;
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(Map.of("error", "Invalid credentials"));
         }
     }
 
+    @PostMapping("/logout")
+    public ResponseEntity<?> logout(@RequestHeader("Authorization") String token) {
+        tokenRevocationService.revoke(jwtUtil.extractAllClaims(token));
+        return ResponseEntity.ok(new ApiResponse("Logged out successfully"));
+    }
+
     @GetMapping("/students")
     public ResponseEntity<?> getStudents() {
         List<Student> students = studentService.getAllStudents();
@@ -101,15 +111,19 @@ public class AdminController {
     @GetMapping("/rooms")
     public ResponseEntity<?> getAllRooms() {
         List<Room> rooms = roomService.getAllRooms();
+        // 座位数由一次聚合查询得到，不逐个自习室加载座位
+        Map<Long, RoomSeatCount> seatCounts = roomService.getSeatCounts();
         List<Map<String, Object>> roomsResponse = rooms.stream()
                 .map(room -> {
+                    RoomSeatCount seatCount = seatCounts.get(room.getId());
                     Map<String, Object> map = new HashMap<>();
                     map.put("room_id", room.getId());
                     map.put("room_name", room.getName());
                     map.put("location", room.getLocation());
                     map.put("status", room.getStatus());
                     map.put("type",room.getType());
-                    map.put("seat_number",seatService.getSeats(room.getId()).size());
+                    map.put("seat_number", seatCount == null ? 0L : seatCount.getSeatCount());
+                    map.put("available_seat_number", seatCount == null ? 0L : seatCount.getAvailableCount());
                     map.put("capacity",room.getCapacity());
                     map.put("open_time",room.getOpenTime());
                     map.put("close_time",room.getCloseTime());
@@ -139,15 +153,17 @@ public class AdminController {
     @GetMapping("/rooms/{roomId}/seats")
     public ResponseEntity<?> getSeatsByRoom(@PathVariable Long roomId) {
         try {
-            List<Seat> seats = seatService.getSeats(roomId);
-            List<Map<String, Object>> seatsResponse = seats.stream()
-                    .map(seat->{
+            // 座位与当天预约一次取出，不再逐个座位查询预约
+            List<SeatBookings> seatMap = bookingService.getSeatMap(roomId);
+            List<Map<String, Object>> seatsResponse = seatMap.stream()
+                    .map(entry->{
+                        Seat seat = entry.getSeat();
                         Map<String, Object> map = new HashMap<>();
                         map.put("seat_id", seat.getId());
                         map.put("seat_name", seat.getSeatName());
                         map.put("status", seat.getStatus());
                         map.put("has_socket",seat.isHasSocket());
-                        map.put("ordering_list",bookingService.getAllBookingsBySeat(seat.getId()).stream()
+                        map.put("ordering_list",entry.getBookings().stream()
                                 .map(booking -> {
                                     Map<String, Object> imap = new HashMap<>();
                                     imap.put("student_id", booking.getStudent().getStudentId());
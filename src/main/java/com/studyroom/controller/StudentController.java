@@ -1,6 +1,11 @@
 package com.studyroom.controller;
 
+import com.studyroom.config.CurrentStudent;
+import com.studyroom.dto.ApiResponse;
 import com.studyroom.dto.BookingRequest;
+import com.studyroom.dto.RoomSeatCount;
+import com.studyroom.dto.SeatBookings;
+import com.studyroom.dto.BookingTicket;
 import com.studyroom.dto.LoginRequest;
 import com.studyroom.dto.RegisterRequest;
 import com.studyroom.model.Booking;
@@ -8,22 +13,30 @@ import com.studyroom.model.Room;
 import com.studyroom.model.Seat;
 import com.studyroom.model.Student;
 import com.studyroom.repository.BookingRepository;
+import com.studyroom.service.BookingWriter;
 import com.studyroom.service.BookingService;
+import com.studyroom.service.BookingTicketService;
+import com.studyroom.service.LoginService;
+import com.studyroom.service.SeatMapSnapshots;
 import com.studyroom.service.SeatService;
+import com.studyroom.util.AuthenticatedUser;
 import com.studyroom.util.JwtUtil;
 import com.studyroom.service.RoomService;
 import com.studyroom.service.StudentService;
+import com.studyroom.service.TokenRevocationService;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.resource.NoResourceFoundException;
 
+import java.time.Instant;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -34,24 +47,27 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class StudentController {
 
-    private final AuthenticationManager authenticationManager;
+    private final LoginService loginService;
     private final JwtUtil jwtUtil;
     private final StudentService studentService;
     private final RoomService roomService;
     private final BookingService bookingService;
     private final SeatService seatService;
+    private final BookingWriter bookingWriter;
+    private final BookingTicketService bookingTicketService;
     private final PasswordEncoder passwordEncoder;
+    private final TokenRevocationService tokenRevocationService;
+    private final SeatMapSnapshots seatMapSnapshots;
 
     @PostMapping("/login")
-    public ResponseEntity<?> login(@RequestBody LoginRequest loginRequest) {
-        Authentication authentication = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(
-                        loginRequest.getUsername(),
-                        loginRequest.getPassword()
-                )
+    public ResponseEntity<?> login(@RequestBody LoginRequest loginRequest, HttpServletRequest request) {
+        Authentication authentication = loginService.authenticate(
+                loginRequest.getUsername(),
+                loginRequest.getPassword(),
+                request.getRemoteAddr()
         );
 
-        String jwt = jwtUtil.generateToken(loginRequest.getUsername());
+        String jwt = jwtUtil.generateToken((UserDetails) authentication.getPrincipal());
         Map<String, String> response = new HashMap<>();
         response.put("token", jwt);
         return ResponseEntity.ok(response);
@@ -67,17 +83,23 @@ public class StudentController {
         student.setEmail(registerRequest.getEmail());
         student.setPhone(registerRequest.getPhone());
         studentService.register(student);
-        String jwt = jwtUtil.generateToken(student.getUsername());
+        String jwt = jwtUtil.generateToken(AuthenticatedUser.of(student));
         Map<String, String> response = new HashMap<>();
         response.put("token", jwt);
         return ResponseEntity.ok(response);
     }
 
-    @PostMapping("/seats/{seatId}/leave")
-    public ResponseEntity<?> leaveSeat(@PathVariable Long seatId) {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        Student student = studentService.findByUsername(authentication.getName());
+    /**
+     * 注销当前 token，之后使用该 token 的请求都会被拒绝
+     */
+    @PostMapping("/logout")
+    public ResponseEntity<?> logout(@RequestHeader("Authorization") String token) {
+        tokenRevocationService.revoke(jwtUtil.extractAllClaims(token));
+        return ResponseEntity.ok(new ApiResponse("Logged out successfully"));
+    }
 
+    @PostMapping("/seats/{seatId}/leave")
+    public ResponseEntity<?> leaveSeat(@PathVariable Long seatId, @CurrentStudent Student student) {
         seatService.temporaryLeaveSeat(student, seatId);
 
         Map<String, String> response = new HashMap<>();
@@ -86,11 +108,8 @@ public class StudentController {
     }
 
     @PostMapping("/seats/book")
-    public ResponseEntity<?> bookSeat(@RequestBody BookingRequest bookingRequest) throws NoResourceFoundException {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        Student student = studentService.findByUsername(authentication.getName());
-
-        seatService.bookSeat(
+    public ResponseEntity<?> bookSeat(@RequestBody BookingRequest bookingRequest, @CurrentStudent Student student) throws NoResourceFoundException {
+        bookingWriter.book(
                 student,
                 bookingRequest
         );
@@ -100,11 +119,39 @@ public class StudentController {
         return ResponseEntity.ok(response);
     }
 
-    @PostMapping("/seats/{seatId}/release")
-    public ResponseEntity<?> releaseSeat(@PathVariable Long seatId) {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        Student student = studentService.findByUsername(authentication.getName());
+    /**
+     * 异步预约，立即返回 202 和 ticketId，结果通过 ticket 查询
+     */
+    @PostMapping("/seats/book/async")
+    public ResponseEntity<?> bookSeatAsync(@RequestBody BookingRequest bookingRequest, @CurrentStudent Student student) {
+        BookingTicket ticket = bookingTicketService.submit(student, bookingRequest);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(ticket);
+    }
+
+    /**
+     * 短时保留座位时段，凭返回的 hold_token 预约
+     */
+    @PostMapping("/seats/hold")
+    public ResponseEntity<?> holdSeat(@RequestBody BookingRequest bookingRequest, @CurrentStudent Student student) throws NoResourceFoundException {
+        return ResponseEntity.ok(seatService.holdSeat(student, bookingRequest));
+    }
 
+    @DeleteMapping("/seats/holds/{holdToken}")
+    public ResponseEntity<?> releaseHold(@PathVariable String holdToken, @CurrentStudent Student student) throws NoResourceFoundException {
+        seatService.releaseHold(student, holdToken);
+
+        Map<String, String> response = new HashMap<>();
+        response.put("message", "Seat hold released");
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/seats/book/tickets/{ticketId}")
+    public ResponseEntity<?> getBookingTicket(@PathVariable String ticketId, @CurrentStudent Student student) throws NoResourceFoundException {
+        return ResponseEntity.ok(bookingTicketService.getTicket(student, ticketId));
+    }
+
+    @PostMapping("/seats/{seatId}/release")
+    public ResponseEntity<?> releaseSeat(@PathVariable Long seatId, @CurrentStudent Student student) {
         seatService.releaseSeat(student, seatId);
 
         Map<String, String> response = new HashMap<>();
@@ -113,10 +160,7 @@ public class StudentController {
     }
 
     @GetMapping("/bookings/history")
-    public ResponseEntity<?> getBookingHistory() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        Student student = studentService.findByUsername(authentication.getName());
-
+    public ResponseEntity<?> getBookingHistory(@CurrentStudent Student student) {
         List<Booking> bookings = bookingService.getAllBookingsByStudentId(student.getId());
 
         List<Map<String, Object>> history = bookings.stream().map(booking -> {
@@ -136,43 +180,51 @@ public class StudentController {
     }
 
     /**
-     * 获取roomId下的所有座位信息
+     * 获取roomId下的所有座位信息。响应按自习室版本缓存，If-None-Match 与当前 ETag 相同时返回 304
      * @param roomId
      * @return
      */
     @GetMapping("/rooms/{roomId}/seats")
-    public ResponseEntity<?> getSeatsByRoom(@PathVariable Long roomId) {
+    public ResponseEntity<?> getSeatsByRoom(@PathVariable Long roomId,
+                                            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         try {
-            List<Seat> seats = seatService.getSeats(roomId);
-            List<Map<String, Object>> seatsResponse = seats.stream()
-                    .map(seat->{
-                        Map<String, Object> map = new HashMap<>();
-                        map.put("seat_id", seat.getId().toString());
-                        map.put("seat_name", seat.getSeatName());
-                        map.put("status", seat.getStatus());
-                        map.put("has_socket",seat.isHasSocket());
-                        map.put("ordering_list",bookingService.getAllBookingsBySeat(seat.getId()).stream()
-                                .map(booking -> {
-                                    Map<String, Object> imap = new HashMap<>();
-                                    imap.put("start_time", booking.getStartTime());
-                                    imap.put("end_time", booking.getEndTime());
-                                    return imap;
-                                }).toList());
-                        return map;
-                    })
-                    .toList();
-            return ResponseEntity.ok(Map.of("seats", seatsResponse));
+            String etag = seatMapSnapshots.seatMapETag(roomId);
+            if (etag.equals(ifNoneMatch)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+            }
+            return snapshotResponse(seatMapSnapshots.seatMap(roomId, () -> buildSeatMap(roomId)));
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body(Map.of("error", e.getMessage()));
         }
     }
 
-    @PostMapping("/seats/{seatId}/checkin")
-    public ResponseEntity<?> checkInSeat(@PathVariable Long seatId) {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        Student student = studentService.findByUsername(authentication.getName());
+    private Map<String, Object> buildSeatMap(Long roomId) {
+        // 座位与当天预约一次取出，不再逐个座位查询预约
+        List<SeatBookings> seatMap = bookingService.getSeatMap(roomId);
+        List<Map<String, Object>> seatsResponse = seatMap.stream()
+                .map(entry->{
+                    Seat seat = entry.getSeat();
+                    Map<String, Object> map = new HashMap<>();
+                    map.put("seat_id", seat.getId().toString());
+                    map.put("seat_name", seat.getSeatName());
+                    map.put("status", seat.getStatus());
+                    map.put("has_socket",seat.isHasSocket());
+                    map.put("ordering_list",entry.getBookings().stream()
+                            .map(booking -> {
+                                Map<String, Object> imap = new HashMap<>();
+                                imap.put("start_time", booking.getStartTime());
+                                imap.put("end_time", booking.getEndTime());
+                                return imap;
+                            }).toList());
+                    return map;
+                })
+                .toList();
+        return Map.of("seats", seatsResponse);
+    }
 
+    @PostMapping("/seats/{seatId}/checkin")
+    public ResponseEntity<?> checkInSeat(@PathVariable Long seatId, @CurrentStudent Student student) {
         seatService.checkInSeat(student, seatId);
 
         Map<String, String> response = new HashMap<>();
@@ -181,33 +233,102 @@ public class StudentController {
     }
 
     @GetMapping("/rooms")
-    public ResponseEntity<?> getAllRooms() {
+    public ResponseEntity<?> getAllRooms(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = seatMapSnapshots.roomsETag();
+        if (etag.equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        return snapshotResponse(seatMapSnapshots.rooms(this::buildRooms));
+    }
+
+    private Map<String, Object> buildRooms() {
         List<Room> rooms = roomService.getAllRooms();
+        // 座位数由一次聚合查询得到，不逐个自习室加载座位
+        Map<Long, RoomSeatCount> seatCounts = roomService.getSeatCounts();
         List<Map<String, Object>> roomsResponse = rooms.stream()
                 .map(room -> {
+                    RoomSeatCount seatCount = seatCounts.get(room.getId());
                     Map<String, Object> map = new HashMap<>();
                     map.put("room_id", room.getId().toString());
                     map.put("room_name", room.getName());
                     map.put("location", room.getLocation());
                     map.put("status", room.getStatus());
                     map.put("type",room.getType());
-                    map.put("seat_number",seatService.getSeats(room.getId()).size());
+                    map.put("seat_number", seatCount == null ? 0L : seatCount.getSeatCount());
+                    map.put("available_seat_number", seatCount == null ? 0L : seatCount.getAvailableCount());
                     map.put("capacity",room.getCapacity());
                     map.put("open_time",room.getOpenTime());
                     map.put("close_time",room.getCloseTime());
                     return map;
                 })
                 .toList();
+        return Map.of("rooms", roomsResponse);
+    }
 
-        return ResponseEntity.ok(Map.of("rooms", roomsResponse));
+    private static ResponseEntity<byte[]> snapshotResponse(SeatMapSnapshots.Snapshot snapshot) {
+        return ResponseEntity.ok()
+                .eTag(snapshot.etag())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(snapshot.body());
     }
 
+    /**
+     * 各自习室当前的空闲与占用座位数，由内存计数提供
+     */
+    @GetMapping("/rooms/availability")
+    public ResponseEntity<?> getRoomAvailability() {
+        return ResponseEntity.ok(Map.of("rooms", roomService.getRoomAvailability()));
+    }
 
-    @DeleteMapping("/bookings/{bookingId}")
-    public ResponseEntity<?> cancelBooking(@PathVariable Long bookingId) {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        Student student = studentService.findByUsername(authentication.getName());
+    /**
+     * 自习室内在 [start_time, end_time) 全程空闲的座位，时间为毫秒时间戳
+     */
+    @GetMapping("/rooms/{roomId}/availability")
+    public ResponseEntity<?> getFreeSeats(@PathVariable Long roomId,
+                                          @RequestParam("start_time") Long startTime,
+                                          @RequestParam("end_time") Long endTime) {
+        List<Map<String, Object>> seats = seatService.findFreeSeats(roomId,
+                        Instant.ofEpochMilli(startTime), Instant.ofEpochMilli(endTime)).stream()
+                .map(seat -> {
+                    Map<String, Object> map = new HashMap<>();
+                    map.put("seat_id", seat.getSeatId().toString());
+                    map.put("seat_name", seat.getSeatName());
+                    map.put("has_socket", seat.isHasSocket());
+                    return map;
+                })
+                .toList();
+        return ResponseEntity.ok(Map.of("seats", seats));
+    }
 
+    /**
+     * 跨自习室查找 [start_time, end_time) 全程空闲的座位，可按插座、自习室类型与位置筛选
+     */
+    @GetMapping("/seats/search")
+    public ResponseEntity<?> searchFreeSeats(@CurrentStudent Student student,
+                                             @RequestParam("start_time") Long startTime,
+                                             @RequestParam("end_time") Long endTime,
+                                             @RequestParam(value = "has_socket", defaultValue = "false") boolean hasSocket,
+                                             @RequestParam(value = "type", required = false) Integer type,
+                                             @RequestParam(value = "location", required = false) String location,
+                                             @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        List<Map<String, Object>> seats = seatService.searchFreeSeats(student, type, hasSocket, location,
+                        Instant.ofEpochMilli(startTime), Instant.ofEpochMilli(endTime), limit).stream()
+                .map(candidate -> {
+                    Map<String, Object> map = new HashMap<>();
+                    map.put("seat_id", candidate.getSeatId().toString());
+                    map.put("seat_name", candidate.getSeatName());
+                    map.put("has_socket", candidate.isHasSocket());
+                    map.put("room_id", candidate.getRoomId().toString());
+                    map.put("room_name", candidate.getRoomName());
+                    map.put("location", candidate.getLocation());
+                    return map;
+                })
+                .toList();
+        return ResponseEntity.ok(Map.of("seats", seats));
+    }
+
+    @DeleteMapping("/bookings/{bookingId}")
+    public ResponseEntity<?> cancelBooking(@PathVariable Long bookingId, @CurrentStudent Student student) {
         try {
             seatService.cancelBooking(student, bookingId);
 
@@ -222,9 +343,7 @@ public class StudentController {
     }
 
     @GetMapping("/information")
-    public ResponseEntity<?> getInformation() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        Student student = studentService.findByUsername(authentication.getName());
+    public ResponseEntity<?> getInformation(@CurrentStudent Student student) {
         List<Booking> bookingList = bookingService.getAllBookingsByStudentId(student.getId());
         Booking booking = bookingList.get(0);
         Map<String, Object> response = new HashMap<>();
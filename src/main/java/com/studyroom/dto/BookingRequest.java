@@ -8,4 +8,7 @@ public class BookingRequest {
     private Long seatId;
     private Long startTime;
     private Long endTime;
+
+    // 确认之前保留的座位时段，此时座位和时段以保留为准
+    private String holdToken;
 }
\ No newline at end of file
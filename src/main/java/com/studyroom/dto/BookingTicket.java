@@ -0,0 +1,24 @@
+package com.studyroom.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 异步预约的处理结果，客户端凭 ticketId 轮询
+ */
+@Data
+@AllArgsConstructor
+public class BookingTicket {
+    private String ticketId;
+    private Status status;
+    private String message;
+
+    // 只有提交预约的学生可以查询
+    @JsonIgnore
+    private Long studentId;
+
+    public enum Status {
+        PENDING, BOOKED, REJECTED, FAILED
+    }
+}
@@ -0,0 +1,15 @@
+package com.studyroom.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 自习室当前的空闲与占用座位数
+ */
+@Data
+@AllArgsConstructor
+public class RoomAvailability {
+    private Long roomId;
+    private long availableCount;
+    private long occupiedCount;
+}
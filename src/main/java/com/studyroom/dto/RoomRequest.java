@@ -16,5 +16,8 @@ public class RoomRequest {
     private Long closeTime;
     private Integer capacity;
     private Integer status;
+
+    @JsonProperty("lottery_window")
+    private Integer lotteryWindow;
 //    private String campus;
 }
\ No newline at end of file
@@ -0,0 +1,15 @@
+package com.studyroom.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 自习室的座位总数与空闲座位数，由聚合查询直接得到
+ */
+@Data
+@AllArgsConstructor
+public class RoomSeatCount {
+    private Long roomId;
+    private Long seatCount;
+    private Long availableCount;
+}
@@ -0,0 +1,18 @@
+package com.studyroom.dto;
+
+import com.studyroom.model.Booking;
+import com.studyroom.model.Seat;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 座位图中的一个座位及其当天的预约
+ */
+@Data
+@AllArgsConstructor
+public class SeatBookings {
+    private Seat seat;
+    private List<Booking> bookings;
+}
@@ -0,0 +1,18 @@
+package com.studyroom.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 跨自习室找座位的结果：座位及其所在自习室
+ */
+@Data
+@AllArgsConstructor
+public class SeatCandidate {
+    private Long seatId;
+    private String seatName;
+    private boolean hasSocket;
+    private Long roomId;
+    private String roomName;
+    private String location;
+}
@@ -0,0 +1,31 @@
+package com.studyroom.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.Instant;
+
+/**
+ * 预约确认前对座位时段的短时保留，凭 holdToken 确认预约
+ */
+@Data
+@AllArgsConstructor
+public class SeatHold {
+    private String holdToken;
+    private Long seatId;
+    private Instant startTime;
+    private Instant endTime;
+    private Instant expiresAt;
+
+    @JsonIgnore
+    private Long studentId;
+
+    public boolean isExpired(long nowMillis) {
+        return expiresAt.toEpochMilli() <= nowMillis;
+    }
+
+    public boolean overlaps(Instant start, Instant end) {
+        return startTime.isBefore(end) && start.isBefore(endTime);
+    }
+}
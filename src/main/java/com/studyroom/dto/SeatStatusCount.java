@@ -0,0 +1,16 @@
+package com.studyroom.dto;
+
+import com.studyroom.model.Seat;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 自习室中处于某一状态的座位数
+ */
+@Data
+@AllArgsConstructor
+public class SeatStatusCount {
+    private Long roomId;
+    private Seat.SeatStatus status;
+    private Long count;
+}
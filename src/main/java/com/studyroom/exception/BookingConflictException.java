@@ -0,0 +1,13 @@
+package com.studyroom.exception;
+
+/**
+ * 座位已被占用或时间冲突，对应 409 响应
+ */
+public class BookingConflictException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public BookingConflictException(String message) {
+        super(message);
+    }
+}
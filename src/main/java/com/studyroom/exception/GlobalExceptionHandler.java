@@ -1,6 +1,9 @@
 package com.studyroom.exception;
 
+import com.studyroom.util.ErrorResponseWriter;
+import lombok.RequiredArgsConstructor;
 import org.apache.coyote.BadRequestException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
@@ -15,24 +18,25 @@ import org.springframework.web.servlet.resource.NoResourceFoundException;
 import javax.management.BadAttributeValueExpException;
 
 @RestControllerAdvice
+@RequiredArgsConstructor
 public class GlobalExceptionHandler {
 
+    // 固定内容的错误响应使用预先序列化的字节
+    private final ErrorResponseWriter errorResponseWriter;
+
     @ExceptionHandler(Exception.class)
-    public ResponseEntity<ApiError> handleException(Exception ex) {
-        ApiError apiError = new ApiError("Internal server error");
-        return new ResponseEntity<>(apiError, HttpStatus.INTERNAL_SERVER_ERROR);
+    public ResponseEntity<byte[]> handleException(Exception ex) {
+        return errorResponseWriter.internalError();
     }
 
     @ExceptionHandler(ExpiredJwtException.class)
-    public ResponseEntity<ApiError> handleExpiredJwtException(Exception ex) {
-        ApiError apiError = new ApiError("Token expired");
-        return new ResponseEntity<>(apiError, HttpStatus.UNAUTHORIZED);
+    public ResponseEntity<byte[]> handleExpiredJwtException(Exception ex) {
+        return errorResponseWriter.tokenExpired();
     }
 
     @ExceptionHandler(HttpMessageNotReadableException.class)
-    public ResponseEntity<ApiError> handleHttpMessageNotReadableException(Exception ex) {
-        ApiError apiError = new ApiError("Request parameters are unrecognized");
-        return new ResponseEntity<>(apiError, HttpStatus.BAD_REQUEST);
+    public ResponseEntity<byte[]> handleHttpMessageNotReadableException(Exception ex) {
+        return errorResponseWriter.unreadableRequest();
     }
 
     @ExceptionHandler(BadCredentialsException.class)
@@ -52,6 +56,34 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(apiError, HttpStatus.UNAUTHORIZED);
     }
 
+    @ExceptionHandler(BookingConflictException.class)
+    public ResponseEntity<ApiError> handleBookingConflictException(Exception ex) {
+        ApiError apiError = new ApiError(ex.getMessage());
+        return new ResponseEntity<>(apiError, HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<ApiError> handleIllegalArgumentException(Exception ex) {
+        ApiError apiError = new ApiError(ex.getMessage());
+        return new ResponseEntity<>(apiError, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(ServiceOverloadedException.class)
+    public ResponseEntity<ApiError> handleServiceOverloadedException(Exception ex) {
+        ApiError apiError = new ApiError(ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(apiError);
+    }
+
+    @ExceptionHandler(LoginThrottledException.class)
+    public ResponseEntity<ApiError> handleLoginThrottledException(LoginThrottledException ex) {
+        ApiError apiError = new ApiError(ex.getMessage());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(apiError);
+    }
+
     @ExceptionHandler(NoResourceFoundException.class)
     public ResponseEntity<ApiError> handleNoResourceFoundException(Exception ex) {
         ApiError apiError = new ApiError(ex.getMessage());
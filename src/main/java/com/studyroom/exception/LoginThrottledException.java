@@ -0,0 +1,20 @@
+package com.studyroom.exception;
+
+import lombok.Getter;
+
+/**
+ * 登录失败次数过多，对应 429 响应
+ */
+@Getter
+public class LoginThrottledException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    // 建议客户端等待的秒数
+    private final long retryAfterSeconds;
+
+    public LoginThrottledException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -0,0 +1,13 @@
+package com.studyroom.exception;
+
+/**
+ * 服务暂时过载，对应 503 响应，客户端应稍后重试
+ */
+public class ServiceOverloadedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public ServiceOverloadedException(String message) {
+        super(message);
+    }
+}
@@ -7,7 +7,8 @@ import java.time.Instant;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "bookings")
+@Table(name = "bookings", indexes = @Index(name = "idx_bookings_student_seat_status",
+        columnList = "student_id, seat_id, status"))
 @Data
 public class Booking {
     @Id
@@ -30,6 +31,9 @@ public class Booking {
 
     private Instant endTime;
 
+    // 最近一次暂离的时间，用于暂离超时
+    private Instant leaveTime;
+
     // 0 预约取消 1 有预定未签到 2 已签到 3 暂离 4 代表正常结束
     private Integer status;
 
@@ -0,0 +1,23 @@
+package com.studyroom.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@Entity
+@Table(name = "revoked_tokens", indexes = @Index(name = "idx_revoked_tokens_expires_at", columnList = "expires_at"))
+@NoArgsConstructor
+@AllArgsConstructor
+public class RevokedToken {
+    // token 的 jti
+    @Id
+    private String jti;
+
+    // token 本身的过期时间，过期后记录可以删除
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+}
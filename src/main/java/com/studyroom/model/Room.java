@@ -36,6 +36,9 @@ public class Room {
     // 0 for Available, 1 for unavailable
     private Integer status;
 
+    // 抽签窗口（秒），为空或 0 表示先到先得
+    private Integer lotteryWindow;
+
 
 
 }
\ No newline at end of file
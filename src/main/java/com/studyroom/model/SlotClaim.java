@@ -0,0 +1,55 @@
+package com.studyroom.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.domain.Persistable;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * 座位时段占用记录，每个预约按 15 分钟时段各插入一行。
+ * 主键 (seat_id, slot_start) 由数据库保证唯一，多个实例同时预约重叠时段时只有一个能插入成功。
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "slot_claims", indexes = @Index(name = "idx_slot_claims_booking_id", columnList = "booking_id"))
+@NoArgsConstructor
+public class SlotClaim implements Persistable<SlotClaim.Key> {
+
+    @EmbeddedId
+    private Key id;
+
+    @Column(name = "booking_id", nullable = false)
+    private Long bookingId;
+
+    public SlotClaim(Long seatId, Instant slotStart, Long bookingId) {
+        this.id = new Key(seatId, slotStart);
+        this.bookingId = bookingId;
+    }
+
+    // 占用记录只插入和批量删除，从不更新；始终按新实体插入，冲突时直接违反主键
+    @Override
+    public boolean isNew() {
+        return true;
+    }
+
+    @Data
+    @Embeddable
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        @Column(name = "seat_id", nullable = false)
+        private Long seatId;
+
+        @Column(name = "slot_start", nullable = false)
+        private Instant slotStart;
+    }
+}
@@ -2,12 +2,16 @@ package com.studyroom.repository;
 
 import com.studyroom.model.Booking;
 import com.studyroom.model.Student;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -25,7 +29,54 @@ public interface BookingRepository extends JpaRepository<Booking, Long> {
             @Param("dayStart") Instant dayStart,
             @Param("dayEnd") Instant dayEnd);
 
+    /**
+     * 自习室内与 [dayStart, dayEnd) 有交集的全部预约，学生、座位与自习室一并取出
+     */
+    @Query("SELECT b FROM Booking b JOIN FETCH b.seat s JOIN FETCH s.room LEFT JOIN FETCH b.student " +
+            "LEFT JOIN FETCH b.room WHERE s.room.id = :roomId AND b.startTime < :dayEnd AND b.endTime > :dayStart " +
+            "ORDER BY b.startTime")
+    List<Booking> findRoomBookingsBetween(
+            @Param("roomId") Long roomId,
+            @Param("dayStart") Instant dayStart,
+            @Param("dayEnd") Instant dayEnd);
+
     List<Booking> findByStudentIdOrderByStartTimeDesc(Long id);
 
+    List<Booking> findByStatusIn(Collection<Integer> statuses);
+
+    // 走 (student_id, seat_id, status) 组合索引，只取一行
+    Optional<Booking> findFirstByStudentIdAndSeatIdAndStatusInOrderByStartTimeAsc(
+            Long studentId, Long seatId, Collection<Integer> statuses);
+
+    // 以下为预约自动流转，条件中带状态与时间，只改仍处于该状态且确已到期的预约。
+    // 先在同一事务中按相同条件锁定并取出这些预约，只释放本次真正改变状态的预约
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM Booking b JOIN FETCH b.seat s JOIN FETCH s.room " +
+            "WHERE b.id IN :ids AND b.status = 1 AND b.startTime <= :startedBefore")
+    List<Booking> findNoShowsForUpdate(@Param("ids") Collection<Long> ids, @Param("startedBefore") Instant startedBefore);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM Booking b JOIN FETCH b.seat s JOIN FETCH s.room " +
+            "WHERE b.id IN :ids AND b.status = 3 AND b.leaveTime <= :leftBefore")
+    List<Booking> findExpiredLeavesForUpdate(@Param("ids") Collection<Long> ids, @Param("leftBefore") Instant leftBefore);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM Booking b JOIN FETCH b.seat s JOIN FETCH s.room " +
+            "WHERE b.id IN :ids AND b.status IN (2, 3) AND b.endTime <= :now")
+    List<Booking> findEndedForUpdate(@Param("ids") Collection<Long> ids, @Param("now") Instant now);
+
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Booking b SET b.status = 0 WHERE b.id IN :ids AND b.status = 1 AND b.startTime <= :startedBefore")
+    int expireNoShows(@Param("ids") Collection<Long> ids, @Param("startedBefore") Instant startedBefore);
+
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Booking b SET b.status = 4 WHERE b.id IN :ids AND b.status = 3 AND b.leaveTime <= :leftBefore")
+    int expireLeaves(@Param("ids") Collection<Long> ids, @Param("leftBefore") Instant leftBefore);
+
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Booking b SET b.status = 4 WHERE b.id IN :ids AND b.status IN (2, 3) AND b.endTime <= :now")
+    int completeEnded(@Param("ids") Collection<Long> ids, @Param("now") Instant now);
+
     void deleteBySeatId(Long seatId);
 }
\ No newline at end of file
@@ -1,7 +1,12 @@
 package com.studyroom.repository;
 
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.util.Collection;
 import java.util.List;
+import com.studyroom.dto.RoomSeatCount;
+import com.studyroom.dto.SeatStatusCount;
 import com.studyroom.model.Room;
 import com.studyroom.model.Seat;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -11,7 +16,40 @@ public interface SeatRepository extends JpaRepository<Seat, Long> {
     Optional<Seat> findByRoomAndSeatNumber(Room room, String seatNumber);
     List<Seat> findByRoomId(Long roomId);
 
-    @Query("SELECT s FROM Seat s WHERE s.room.name LIKE %:query% OR s.seatNumber LIKE %:query%")
-    List<Seat> searchSeats(String query);
+    @Query("SELECT s FROM Seat s JOIN FETCH s.room WHERE s.room.id = :roomId ORDER BY s.id")
+    List<Seat> findWithRoomByRoomId(@Param("roomId") Long roomId);
+
+    /**
+     * 按自习室统计座位数与 available 状态的座位数，一次查询、不加载座位实体。
+     * 没有座位的自习室不出现在结果中
+     */
+    @Query("SELECT new com.studyroom.dto.RoomSeatCount(s.room.id, COUNT(s), " +
+            "SUM(CASE WHEN s.status = :available THEN 1L ELSE 0L END)) FROM Seat s GROUP BY s.room.id")
+    List<RoomSeatCount> countSeatsByRoom(@Param("available") Seat.SeatStatus available);
+
+    @Query("SELECT new com.studyroom.dto.SeatStatusCount(s.room.id, s.status, COUNT(s)) FROM Seat s " +
+            "GROUP BY s.room.id, s.status")
+    List<SeatStatusCount> countSeatsByRoomAndStatus();
+
+    /**
+     * 仅当座位当前状态为 expected 时更新为 target，返回受影响的行数。
+     * 由数据库保证原子性，并发预约同一座位时只有一个能成功。
+     */
+    @Modifying
+    @Query("UPDATE Seat s SET s.status = :target WHERE s.id = :seatId AND s.status = :expected")
+    int compareAndSetStatus(@Param("seatId") Long seatId,
+                            @Param("expected") Seat.SeatStatus expected,
+                            @Param("target") Seat.SeatStatus target);
+
+    /**
+     * 批量把没有有效预约的座位从 expected 改为 target
+     */
+    @Modifying
+    @Query("UPDATE Seat s SET s.status = :target WHERE s.id IN :seatIds AND s.status = :expected " +
+            "AND NOT EXISTS (SELECT b.id FROM Booking b WHERE b.seat.id = s.id AND b.status IN :activeStatuses)")
+    int releaseIdleSeats(@Param("seatIds") Collection<Long> seatIds,
+                         @Param("expected") Seat.SeatStatus expected,
+                         @Param("target") Seat.SeatStatus target,
+                         @Param("activeStatuses") Collection<Integer> activeStatuses);
 
 }
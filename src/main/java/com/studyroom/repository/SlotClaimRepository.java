@@ -0,0 +1,24 @@
+package com.studyroom.repository;
+
+import com.studyroom.model.SlotClaim;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+
+public interface SlotClaimRepository extends JpaRepository<SlotClaim, SlotClaim.Key> {
+
+    @Modifying
+    @Query("DELETE FROM SlotClaim c WHERE c.bookingId = :bookingId")
+    int deleteByBookingId(@Param("bookingId") Long bookingId);
+
+    @Modifying
+    @Query("DELETE FROM SlotClaim c WHERE c.bookingId IN :bookingIds")
+    int deleteByBookingIdIn(@Param("bookingIds") Collection<Long> bookingIds);
+
+    @Modifying
+    @Query("DELETE FROM SlotClaim c WHERE c.id.seatId = :seatId")
+    int deleteBySeatId(@Param("seatId") Long seatId);
+}
@@ -2,23 +2,22 @@ package com.studyroom.service;
 
 import com.studyroom.model.Admin;
 import com.studyroom.repository.AdminRepository;
+import com.studyroom.util.AuthenticatedUser;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
-
 @Service
 @RequiredArgsConstructor
 public class AdminService implements UserDetailsService {
 
     private final AdminRepository adminRepository;
     private final PasswordEncoder passwordEncoder;
+    private final UserDetailsCache userDetailsCache;
 
     @PostConstruct
     public void init() {
@@ -28,6 +27,7 @@ public class AdminService implements UserDetailsService {
             admin.setUsername("admin");
             admin.setPassword(passwordEncoder.encode("password"));
             adminRepository.save(admin);
+            userDetailsCache.evict(admin.getUsername());
         }
     }
 
@@ -36,7 +36,18 @@ public class AdminService implements UserDetailsService {
         Admin admin = adminRepository.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("Admin not found"));
 
-        return new User(admin.getUsername(), admin.getPassword(), new ArrayList<>());
+        return AuthenticatedUser.of(admin);
+    }
+
+    /**
+     * 保存重新哈希后的密码
+     */
+    public UserDetails updatePassword(String username, String encodedPassword) {
+        Admin admin = findByUsername(username);
+        admin.setPassword(encodedPassword);
+        adminRepository.save(admin);
+        userDetailsCache.evict(username);
+        return AuthenticatedUser.of(admin);
     }
 
     public Admin findByUsername(String username) {
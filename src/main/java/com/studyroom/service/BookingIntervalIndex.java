@@ -0,0 +1,237 @@
+package com.studyroom.service;
+
+import com.studyroom.exception.BookingConflictException;
+import com.studyroom.model.Booking;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 有效预约（状态 1、2、3）的内存区间索引，按座位和学生分别维护。
+ * 同一座位、同一学生的区间互不重叠，按开始时间排序后，
+ * 冲突判断只需查看开始时间早于新区间结束时间的最后一个区间，复杂度 O(log n)。
+ * 加锁顺序固定为先座位后学生。只读操作不创建区间表；座位被删除时在其区间表的锁内整体移除，
+ * 占用时段前确认拿到的仍是当前的区间表。
+ */
+@Component
+public class BookingIntervalIndex {
+
+    private final Map<Long, NavigableMap<Long, Reservation>> bySeat = new ConcurrentHashMap<>();
+    private final Map<Long, NavigableMap<Long, Reservation>> byStudent = new ConcurrentHashMap<>();
+    private final Map<Long, Reservation> byBooking = new ConcurrentHashMap<>();
+
+    /**
+     * 占用一个时段。座位或学生在该时段已有预约时抛出 BookingConflictException
+     */
+    public Reservation reserve(long seatId, long studentId, Instant startTime, Instant endTime) {
+        Reservation reservation = new Reservation(seatId, studentId,
+                startTime.toEpochMilli(), endTime.toEpochMilli());
+        if (reservation.start >= reservation.end) {
+            throw new IllegalArgumentException("Booking end time must be after start time");
+        }
+        while (true) {
+            NavigableMap<Long, Reservation> seatIntervals = intervals(bySeat, seatId);
+            NavigableMap<Long, Reservation> studentIntervals = intervals(byStudent, studentId);
+            synchronized (seatIntervals) {
+                // 等锁期间座位被移除，改用新的区间表
+                if (bySeat.get(seatId) != seatIntervals) {
+                    continue;
+                }
+                synchronized (studentIntervals) {
+                    if (overlaps(seatIntervals, reservation.start, reservation.end)) {
+                        throw new BookingConflictException("Seat is already booked for this time");
+                    }
+                    if (overlaps(studentIntervals, reservation.start, reservation.end)) {
+                        throw new BookingConflictException("You already have a booking during this time");
+                    }
+                    seatIntervals.put(reservation.start, reservation);
+                    studentIntervals.put(reservation.start, reservation);
+                }
+            }
+            return reservation;
+        }
+    }
+
+    /**
+     * 预约写入数据库后关联预约主键，之后可以按主键移除
+     */
+    public void confirm(Reservation reservation, Long bookingId) {
+        reservation.bookingId = bookingId;
+        byBooking.put(bookingId, reservation);
+    }
+
+    /**
+     * 撤销尚未提交或已回滚的占用，可重复调用
+     */
+    public void cancel(Reservation reservation) {
+        if (reservation.bookingId != null) {
+            byBooking.remove(reservation.bookingId, reservation);
+        }
+        NavigableMap<Long, Reservation> seatIntervals = bySeat.get(reservation.seatId);
+        NavigableMap<Long, Reservation> studentIntervals = byStudent.get(reservation.studentId);
+        // 座位已被移除时其区间已一并清理
+        if (seatIntervals == null || studentIntervals == null) {
+            return;
+        }
+        synchronized (seatIntervals) {
+            synchronized (studentIntervals) {
+                seatIntervals.remove(reservation.start, reservation);
+                studentIntervals.remove(reservation.start, reservation);
+            }
+        }
+    }
+
+    /**
+     * 预约取消或结束后释放其时段
+     */
+    public void remove(Long bookingId) {
+        Reservation reservation = byBooking.get(bookingId);
+        if (reservation != null) {
+            cancel(reservation);
+        }
+    }
+
+    /**
+     * 座位被删除时丢弃它的全部时段
+     */
+    public void removeSeat(Long seatId) {
+        NavigableMap<Long, Reservation> seatIntervals = bySeat.get(seatId);
+        if (seatIntervals == null) {
+            return;
+        }
+        synchronized (seatIntervals) {
+            bySeat.remove(seatId, seatIntervals);
+            for (Reservation reservation : seatIntervals.values()) {
+                if (reservation.bookingId != null) {
+                    byBooking.remove(reservation.bookingId, reservation);
+                }
+                NavigableMap<Long, Reservation> studentIntervals = byStudent.get(reservation.studentId);
+                if (studentIntervals != null) {
+                    synchronized (studentIntervals) {
+                        studentIntervals.remove(reservation.start, reservation);
+                    }
+                }
+            }
+            seatIntervals.clear();
+        }
+    }
+
+    public boolean overlapsSeat(long seatId, Instant startTime, Instant endTime) {
+        NavigableMap<Long, Reservation> seatIntervals = bySeat.get(seatId);
+        if (seatIntervals == null) {
+            return false;
+        }
+        synchronized (seatIntervals) {
+            return overlaps(seatIntervals, startTime.toEpochMilli(), endTime.toEpochMilli());
+        }
+    }
+
+    public boolean overlapsStudent(long studentId, Instant startTime, Instant endTime) {
+        NavigableMap<Long, Reservation> studentIntervals = byStudent.get(studentId);
+        if (studentIntervals == null) {
+            return false;
+        }
+        synchronized (studentIntervals) {
+            return overlaps(studentIntervals, startTime.toEpochMilli(), endTime.toEpochMilli());
+        }
+    }
+
+    /**
+     * 学生在该座位上开始时间最早的有效预约主键，没有时返回 null。
+     * 学生同时持有的有效预约很少，遍历其区间即可。
+     */
+    public Long findBooking(long studentId, long seatId) {
+        NavigableMap<Long, Reservation> studentIntervals = byStudent.get(studentId);
+        if (studentIntervals == null) {
+            return null;
+        }
+        synchronized (studentIntervals) {
+            for (Reservation reservation : studentIntervals.values()) {
+                if (reservation.seatId == seatId && reservation.bookingId != null) {
+                    return reservation.bookingId;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * 座位上是否还有除指定预约以外的有效预约，用于决定释放后座位状态
+     */
+    public boolean hasOtherBookings(long seatId, Long bookingId) {
+        NavigableMap<Long, Reservation> seatIntervals = bySeat.get(seatId);
+        if (seatIntervals == null) {
+            return false;
+        }
+        synchronized (seatIntervals) {
+            for (Reservation reservation : seatIntervals.values()) {
+                if (bookingId == null || !bookingId.equals(reservation.bookingId)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * 用数据库中的有效预约重建索引，启动时调用
+     */
+    public void load(Collection<Booking> bookings) {
+        bySeat.clear();
+        byStudent.clear();
+        byBooking.clear();
+        for (Booking booking : bookings) {
+            if (booking.getSeat() == null || booking.getStudent() == null
+                    || booking.getStartTime() == null || booking.getEndTime() == null) {
+                continue;
+            }
+            Reservation reservation = new Reservation(booking.getSeat().getId(), booking.getStudent().getId(),
+                    booking.getStartTime().toEpochMilli(), booking.getEndTime().toEpochMilli());
+            reservation.bookingId = booking.getId();
+            intervals(bySeat, reservation.seatId).put(reservation.start, reservation);
+            intervals(byStudent, reservation.studentId).put(reservation.start, reservation);
+            byBooking.put(booking.getId(), reservation);
+        }
+    }
+
+    public int size() {
+        return byBooking.size();
+    }
+
+    private static NavigableMap<Long, Reservation> intervals(Map<Long, NavigableMap<Long, Reservation>> index, long key) {
+        return index.computeIfAbsent(key, k -> new TreeMap<>());
+    }
+
+    // 区间互不重叠，开始时间早于 end 的最后一个区间结束得最晚
+    private static boolean overlaps(NavigableMap<Long, Reservation> intervals, long start, long end) {
+        Map.Entry<Long, Reservation> previous = intervals.lowerEntry(end);
+        return previous != null && previous.getValue().end > start;
+    }
+
+    /**
+     * 索引中的一个时段
+     */
+    public static final class Reservation {
+        private final long seatId;
+        private final long studentId;
+        private final long start;
+        private final long end;
+        private volatile Long bookingId;
+
+        private Reservation(long seatId, long studentId, long start, long end) {
+            this.seatId = seatId;
+            this.studentId = studentId;
+            this.start = start;
+            this.end = end;
+        }
+
+        public Long getBookingId() {
+            return bookingId;
+        }
+    }
+}
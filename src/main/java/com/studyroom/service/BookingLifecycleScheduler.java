@@ -0,0 +1,217 @@
+package com.studyroom.service;
+
+import com.studyroom.model.Booking;
+import com.studyroom.model.Seat;
+import com.studyroom.repository.BookingRepository;
+import com.studyroom.repository.SeatRepository;
+import com.studyroom.repository.SlotClaimRepository;
+import com.studyroom.util.TimingWheel;
+import com.studyroom.util.TransactionHooks;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 预约状态的自动流转：未签到超时取消、暂离超时结束、到结束时间自动完成。
+ * 每次状态变化时把下一次流转放入时间轮，到期的流转按类型合并成批量条件更新，
+ * 条件中带上状态与时间，已被学生手动改变的预约不会被误改。
+ * 启动时从数据库中的有效预约重建时间轮。
+ */
+@Slf4j
+@Service
+public class BookingLifecycleScheduler {
+
+    private static final long RETRY_DELAY_MILLIS = 60_000;
+
+    private final BookingRepository bookingRepository;
+    private final SeatRepository seatRepository;
+    private final SlotClaimRepository slotClaimRepository;
+    private final BookingIntervalIndex bookingIntervalIndex;
+    private final RoomOccupancyCounters roomOccupancyCounters;
+    private final SeatMapSnapshots seatMapSnapshots;
+    private final SeatSlotBitmaps seatSlotBitmaps;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration checkInGrace;
+    private final Duration leaveTimeout;
+    private final TimingWheel<Transition> wheel;
+    private final ScheduledExecutorService executor;
+    private final Map<Kind, Counter> transitionCounters = new EnumMap<>(Kind.class);
+    private final Counter failureCounter;
+
+    public BookingLifecycleScheduler(BookingRepository bookingRepository,
+                                     SeatRepository seatRepository,
+                                     SlotClaimRepository slotClaimRepository,
+                                     BookingIntervalIndex bookingIntervalIndex,
+                                     RoomOccupancyCounters roomOccupancyCounters,
+                                     SeatMapSnapshots seatMapSnapshots,
+                                     SeatSlotBitmaps seatSlotBitmaps,
+                                     PlatformTransactionManager transactionManager,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${booking.lifecycle.check-in-grace:15m}") Duration checkInGrace,
+                                     @Value("${booking.lifecycle.leave-timeout:30m}") Duration leaveTimeout,
+                                     @Value("${booking.lifecycle.tick:1s}") Duration tick) {
+        this.bookingRepository = bookingRepository;
+        this.seatRepository = seatRepository;
+        this.slotClaimRepository = slotClaimRepository;
+        this.bookingIntervalIndex = bookingIntervalIndex;
+        this.roomOccupancyCounters = roomOccupancyCounters;
+        this.seatMapSnapshots = seatMapSnapshots;
+        this.seatSlotBitmaps = seatSlotBitmaps;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.checkInGrace = checkInGrace;
+        this.leaveTimeout = leaveTimeout;
+        // 1 秒一格、每层 64 格、4 层，覆盖约 194 天
+        this.wheel = new TimingWheel<>(tick.toMillis(), 64, 4, System.currentTimeMillis());
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "booking-lifecycle");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        for (Kind kind : Kind.values()) {
+            transitionCounters.put(kind, Counter.builder("studyroom.booking.lifecycle.transitions")
+                    .tag("kind", kind.name().toLowerCase())
+                    .description("Bookings moved to a final status by the lifecycle scheduler")
+                    .register(meterRegistry));
+        }
+        this.failureCounter = Counter.builder("studyroom.booking.lifecycle.failures")
+                .description("Lifecycle ticks or transition batches that failed")
+                .register(meterRegistry);
+        Gauge.builder("studyroom.booking.lifecycle.pending", wheel, TimingWheel::size)
+                .description("Lifecycle transitions waiting in the timing wheel")
+                .register(meterRegistry);
+        this.executor.scheduleWithFixedDelay(this::runTick, tick.toMillis(), tick.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 启动时为所有有效预约重新安排流转，已过期的在下一个 tick 处理
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        bookingRepository.findByStatusIn(SeatService.ACTIVE_STATUSES).forEach(this::schedule);
+    }
+
+    /**
+     * 按预约当前状态安排下一次流转，在预约创建或状态变化后调用
+     */
+    public void schedule(Booking booking) {
+        Long id = booking.getId();
+        switch (booking.getStatus()) {
+            case 1 -> wheel.schedule(booking.getStartTime().plus(checkInGrace).toEpochMilli(),
+                    new Transition(id, Kind.NO_SHOW));
+            case 2 -> wheel.schedule(booking.getEndTime().toEpochMilli(), new Transition(id, Kind.COMPLETE));
+            case 3 -> {
+                Instant leftAt = booking.getLeaveTime() != null ? booking.getLeaveTime() : Instant.now();
+                wheel.schedule(leftAt.plus(leaveTimeout).toEpochMilli(), new Transition(id, Kind.LEAVE_TIMEOUT));
+                wheel.schedule(booking.getEndTime().toEpochMilli(), new Transition(id, Kind.COMPLETE));
+            }
+            default -> {
+            }
+        }
+    }
+
+    private void runTick() {
+        long now = System.currentTimeMillis();
+        try {
+            tick(now);
+        } catch (RuntimeException e) {
+            // 记录后继续，不让异常终止定时任务
+            failureCounter.increment();
+            log.error("Booking lifecycle tick at {} failed", Instant.ofEpochMilli(now), e);
+        }
+    }
+
+    /**
+     * 推进时间轮并应用到期的流转
+     */
+    void tick(long nowMillis) {
+        List<Transition> due = wheel.advance(nowMillis);
+        if (due.isEmpty()) {
+            return;
+        }
+        Map<Kind, List<Long>> byKind = new EnumMap<>(Kind.class);
+        for (Transition transition : due) {
+            byKind.computeIfAbsent(transition.kind(), kind -> new ArrayList<>()).add(transition.bookingId());
+        }
+        Instant now = Instant.ofEpochMilli(nowMillis);
+        byKind.forEach((kind, ids) -> {
+            try {
+                apply(kind, ids, now);
+            } catch (RuntimeException e) {
+                // 数据库暂时不可用时稍后重试，条件更新保证重复执行无副作用
+                failureCounter.increment();
+                log.warn("Booking lifecycle {} transition for {} bookings at {} failed, retrying in {} ms",
+                        kind, ids.size(), now, RETRY_DELAY_MILLIS, e);
+                ids.forEach(id -> wheel.schedule(nowMillis + RETRY_DELAY_MILLIS, new Transition(id, kind)));
+            }
+        });
+    }
+
+    private void apply(Kind kind, List<Long> ids, Instant now) {
+        transactionTemplate.executeWithoutResult(status -> {
+            // 先锁定仍满足流转条件的预约，已被学生取消或结束的预约不在其中，不会误释放之后的预约占用的时段
+            List<Booking> ended = switch (kind) {
+                case NO_SHOW -> bookingRepository.findNoShowsForUpdate(ids, now.minus(checkInGrace));
+                case LEAVE_TIMEOUT -> bookingRepository.findExpiredLeavesForUpdate(ids, now.minus(leaveTimeout));
+                case COMPLETE -> bookingRepository.findEndedForUpdate(ids, now);
+            };
+            if (ended.isEmpty()) {
+                return;
+            }
+            List<Long> endedIds = ended.stream().map(Booking::getId).toList();
+            int changed = switch (kind) {
+                case NO_SHOW -> bookingRepository.expireNoShows(endedIds, now.minus(checkInGrace));
+                case LEAVE_TIMEOUT -> bookingRepository.expireLeaves(endedIds, now.minus(leaveTimeout));
+                case COMPLETE -> bookingRepository.completeEnded(endedIds, now);
+            };
+            transitionCounters.get(kind).increment(changed);
+
+            // 已结束的预约释放时段占用，没有其他有效预约的座位恢复空闲
+            slotClaimRepository.deleteByBookingIdIn(endedIds);
+            // 按自习室分别释放，得到每个自习室恢复空闲的座位数
+            Map<Long, Set<Long>> seatIdsByRoom = new HashMap<>();
+            ended.forEach(booking -> seatIdsByRoom
+                    .computeIfAbsent(booking.getSeat().getRoom().getId(), roomId -> new HashSet<>())
+                    .add(booking.getSeat().getId()));
+            Map<Long, Integer> releasedByRoom = new HashMap<>();
+            seatIdsByRoom.forEach((roomId, seatIds) -> releasedByRoom.put(roomId, seatRepository.releaseIdleSeats(
+                    seatIds, Seat.SeatStatus.OCCUPIED, Seat.SeatStatus.AVAILABLE, SeatService.ACTIVE_STATUSES)));
+            TransactionHooks.afterCommit(() -> {
+                endedIds.forEach(bookingIntervalIndex::remove);
+                ended.forEach(booking -> seatSlotBitmaps.release(booking.getSeat().getRoom().getId(),
+                        booking.getSeat().getId(), booking.getStartTime(), booking.getEndTime()));
+                releasedByRoom.forEach((roomId, released) -> {
+                    roomOccupancyCounters.transition(roomId, Seat.SeatStatus.OCCUPIED, Seat.SeatStatus.AVAILABLE, released);
+                    seatMapSnapshots.roomChanged(roomId);
+                });
+            });
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    enum Kind {
+        NO_SHOW, LEAVE_TIMEOUT, COMPLETE
+    }
+
+    private record Transition(Long bookingId, Kind kind) {
+    }
+}
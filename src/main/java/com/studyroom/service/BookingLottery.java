@@ -0,0 +1,212 @@
+package com.studyroom.service;
+
+import com.studyroom.dto.BookingRequest;
+import com.studyroom.model.Booking;
+import com.studyroom.model.Room;
+import com.studyroom.model.Student;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * 热门自习室的抽签预约。房间设置了抽签窗口时，窗口内收到的预约请求先收集起来，
+ * 窗口结束后随机排序学生依次分配，中签的预约在一个事务中写入，未中签的直接返回冲突。
+ * 各房间的抽签窗口保存在内存中，随自习室新建、修改与删除维护，判断是否抽签不读数据库。
+ */
+@Service
+public class BookingLottery {
+
+    private final SeatService seatService;
+    private final SeatSearchIndex seatSearchIndex;
+    private final TransactionTemplate transactionTemplate;
+    private final ScheduledExecutorService scheduler;
+    private final Random random = new SecureRandom();
+    private final long timeoutMillis;
+
+    // 每个房间当前正在收集的一轮
+    private final Map<Long, Round> rounds = new ConcurrentHashMap<>();
+    // 设置了抽签窗口（秒）的房间
+    private final Map<Long, Integer> lotteryWindows = new ConcurrentHashMap<>();
+
+    private final Counter winnerCounter;
+    private final Counter loserCounter;
+
+    public BookingLottery(SeatService seatService,
+                          SeatSearchIndex seatSearchIndex,
+                          PlatformTransactionManager transactionManager,
+                          MeterRegistry meterRegistry,
+                          @Value("${booking.lottery.timeout:10s}") Duration timeout) {
+        this.timeoutMillis = timeout.toMillis();
+        this.seatService = seatService;
+        this.seatSearchIndex = seatSearchIndex;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "booking-lottery");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.winnerCounter = Counter.builder("studyroom.booking.lottery.entries")
+                .tag("result", "won")
+                .description("Lottery entries that were allocated a seat")
+                .register(meterRegistry);
+        this.loserCounter = Counter.builder("studyroom.booking.lottery.entries")
+                .tag("result", "lost")
+                .description("Lottery entries that were not allocated a seat")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 用数据库中的自习室重建抽签窗口，启动时调用
+     */
+    public void load(Collection<Room> rooms) {
+        lotteryWindows.clear();
+        rooms.forEach(this::putRoom);
+    }
+
+    /**
+     * 自习室新建或修改后调用
+     */
+    public void putRoom(Room room) {
+        Integer window = room.getLotteryWindow();
+        if (window == null || window <= 0) {
+            lotteryWindows.remove(room.getId());
+        } else {
+            lotteryWindows.put(room.getId(), window);
+        }
+    }
+
+    public void removeRoom(Long roomId) {
+        lotteryWindows.remove(roomId);
+    }
+
+    /**
+     * 座位所在房间处于抽签模式时加入当前一轮，返回开奖后完成的结果；否则返回 null。
+     * 开奖后 timeout 内仍未写入时结果以 TimeoutException 结束。
+     */
+    public CompletableFuture<Void> enter(Student student, BookingRequest bookingRequest) {
+        // 先按保留确定座位并拒绝被他人保留的时段，只带保留令牌的确认请求也能找到座位
+        SeatService.BookingTarget target = seatService.resolveTarget(student, bookingRequest);
+        Long roomId = seatSearchIndex.roomOf(target.seatId());
+        Integer window = roomId == null ? null : lotteryWindows.get(roomId);
+        if (window == null) {
+            return null;
+        }
+
+        Entry entry = new Entry(student, bookingRequest, new CompletableFuture<>());
+        while (true) {
+            Round round = rounds.get(roomId);
+            if (round == null) {
+                Round created = new Round();
+                round = rounds.putIfAbsent(roomId, created);
+                if (round == null) {
+                    // 只有放入成功的线程安排开奖
+                    round = created;
+                    scheduler.schedule(() -> draw(roomId, created), window, TimeUnit.SECONDS);
+                }
+            }
+            if (round.add(entry)) {
+                return entry.result().orTimeout(window * 1000L + timeoutMillis, TimeUnit.MILLISECONDS);
+            }
+            // 这一轮刚好开奖，重新取下一轮
+            rounds.remove(roomId, round);
+        }
+    }
+
+    private void draw(Long roomId, Round round) {
+        rounds.remove(roomId, round);
+        List<Entry> entries = round.close();
+
+        // 按学生随机排序，同一学生多次提交不会增加中签机会
+        Map<Long, List<Entry>> byStudent = new LinkedHashMap<>();
+        for (Entry entry : entries) {
+            byStudent.computeIfAbsent(entry.student().getId(), id -> new ArrayList<>()).add(entry);
+        }
+        List<List<Entry>> order = new ArrayList<>(byStudent.values());
+        Collections.shuffle(order, random);
+
+        List<Entry> winners = new ArrayList<>();
+        List<SeatService.PreparedBooking> prepared = new ArrayList<>();
+        for (List<Entry> studentEntries : order) {
+            for (Entry entry : studentEntries) {
+                try {
+                    prepared.add(seatService.prepareBooking(entry.student(), entry.request()));
+                    winners.add(entry);
+                } catch (Exception e) {
+                    loserCounter.increment();
+                    entry.result().completeExceptionally(e);
+                }
+            }
+        }
+        if (winners.isEmpty()) {
+            return;
+        }
+
+        try {
+            List<Booking> bookings = transactionTemplate.execute(status -> prepared.stream()
+                    .map(seatService::writeBooking)
+                    .toList());
+            for (int i = 0; i < winners.size(); i++) {
+                seatService.confirmBooking(prepared.get(i), bookings.get(i));
+                winnerCounter.increment();
+                winners.get(i).result().complete(null);
+            }
+        } catch (RuntimeException e) {
+            // 整批写入失败时逐条写入，确定每个中签者的结果
+            for (int i = 0; i < winners.size(); i++) {
+                writeOne(winners.get(i), prepared.get(i));
+            }
+        }
+    }
+
+    private void writeOne(Entry entry, SeatService.PreparedBooking prepared) {
+        try {
+            Booking booking = transactionTemplate.execute(status -> seatService.writeBooking(prepared));
+            seatService.confirmBooking(prepared, booking);
+            winnerCounter.increment();
+            entry.result().complete(null);
+        } catch (RuntimeException e) {
+            seatService.abandonBooking(prepared);
+            loserCounter.increment();
+            entry.result().completeExceptionally(e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private record Entry(Student student, BookingRequest request, CompletableFuture<Void> result) {
+    }
+
+    /**
+     * 一轮抽签收集到的请求，开奖后不再接受新的请求
+     */
+    private static final class Round {
+        private final List<Entry> entries = new ArrayList<>();
+        private boolean closed;
+
+        synchronized boolean add(Entry entry) {
+            if (closed) {
+                return false;
+            }
+            entries.add(entry);
+            return true;
+        }
+
+        synchronized List<Entry> close() {
+            closed = true;
+            return entries;
+        }
+    }
+}
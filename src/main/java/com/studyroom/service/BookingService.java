@@ -1,20 +1,27 @@
 package com.studyroom.service;
 
+import com.studyroom.dto.SeatBookings;
 import com.studyroom.model.Booking;
+import com.studyroom.model.Seat;
 import com.studyroom.repository.BookingRepository;
+import com.studyroom.repository.SeatRepository;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.PostMapping;
 
 import java.time.*;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class BookingService {
 
     private final BookingRepository bookingRepository;
+    private final SeatRepository seatRepository;
 
     public List<Booking> getAllBookings() {
         return bookingRepository.findAll();
@@ -32,6 +39,24 @@ public class BookingService {
         return bookingRepository.findTodayBookingsBySeatId(seatId, dayStart, dayEnd);
     }
 
+    /**
+     * 自习室的座位图：所有座位及其今天的预约。
+     * 座位和预约各用一次查询取出，再在内存中按座位分组
+     */
+    @Transactional(readOnly = true)
+    public List<SeatBookings> getSeatMap(Long roomId) {
+        Instant dayStart = LocalDate.now().atStartOfDay(ZoneId.systemDefault()).toInstant();
+        Instant dayEnd = LocalDate.now().plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant();
+
+        List<Seat> seats = seatRepository.findWithRoomByRoomId(roomId);
+        Map<Long, List<Booking>> bookingsBySeat = bookingRepository.findRoomBookingsBetween(roomId, dayStart, dayEnd)
+                .stream()
+                .collect(Collectors.groupingBy(booking -> booking.getSeat().getId()));
+        return seats.stream()
+                .map(seat -> new SeatBookings(seat, bookingsBySeat.getOrDefault(seat.getId(), List.of())))
+                .toList();
+    }
+
     public List<Booking> getAllBookingsByStudentId(Long studentId) {
         return bookingRepository.findByStudentIdOrderByStartTimeDesc(studentId);
     }
@@ -0,0 +1,143 @@
+package com.studyroom.service;
+
+import com.studyroom.dto.BookingRequest;
+import com.studyroom.dto.BookingTicket;
+import com.studyroom.exception.BookingConflictException;
+import com.studyroom.exception.ServiceOverloadedException;
+import com.studyroom.model.Student;
+import com.studyroom.util.ExpiringCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.resource.NoResourceFoundException;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+/**
+ * 异步预约：请求立即返回 ticket，预约按提交顺序由单个线程依次校验并交给写入器，
+ * 该线程不等待写入完成，启用组提交时多个预约可以合并到同一事务，高峰期也不占用 Tomcat 线程等待数据库。
+ * 队列满或未完成的 ticket 达到上限时直接返回 503；未完成的 ticket 不会被淘汰。
+ */
+@Service
+public class BookingTicketService {
+
+    private final BookingWriter bookingWriter;
+    private final BookingLottery bookingLottery;
+    private final ExpiringCache<String, BookingTicket> tickets;
+    private final long ticketTtlMillis;
+    private final ThreadPoolExecutor executor;
+    private final Counter rejectedCounter;
+
+    public BookingTicketService(BookingWriter bookingWriter,
+                                BookingLottery bookingLottery,
+                                MeterRegistry meterRegistry,
+                                @Value("${booking.async.queue-capacity:1000}") int queueCapacity,
+                                @Value("${booking.async.max-tickets:100000}") int maxTickets,
+                                @Value("${booking.async.ticket-ttl:10m}") Duration ticketTtl) {
+        this.bookingWriter = bookingWriter;
+        this.bookingLottery = bookingLottery;
+        this.tickets = new ExpiringCache<>(maxTickets, ticket -> ticket.getStatus() != BookingTicket.Status.PENDING);
+        this.ticketTtlMillis = ticketTtl.toMillis();
+        this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "booking-ticket");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        this.rejectedCounter = Counter.builder("studyroom.booking.async.rejected")
+                .description("Async bookings rejected because the queue or the pending ticket table was full")
+                .register(meterRegistry);
+        Gauge.builder("studyroom.booking.async.queue.size", executor, e -> e.getQueue().size())
+                .description("Async bookings waiting to be processed")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 提交预约并返回处于 PENDING 状态的 ticket
+     *
+     * @throws ServiceOverloadedException 队列已满或未完成的 ticket 过多
+     */
+    public BookingTicket submit(Student student, BookingRequest bookingRequest) {
+        String ticketId = UUID.randomUUID().toString();
+        BookingTicket pending = new BookingTicket(ticketId, BookingTicket.Status.PENDING, null, student.getId());
+        if (!tickets.put(ticketId, pending, System.currentTimeMillis() + ticketTtlMillis)) {
+            rejectedCounter.increment();
+            throw new ServiceOverloadedException("Too many booking requests, please try again later");
+        }
+        try {
+            executor.execute(() -> process(pending, student, bookingRequest));
+        } catch (RejectedExecutionException e) {
+            tickets.invalidate(ticketId);
+            rejectedCounter.increment();
+            throw new ServiceOverloadedException("Too many booking requests, please try again later");
+        }
+        return pending;
+    }
+
+    /**
+     * 查询 ticket，只能查询自己提交的
+     */
+    public BookingTicket getTicket(Student student, String ticketId) throws NoResourceFoundException {
+        BookingTicket ticket = tickets.get(ticketId);
+        if (ticket == null || !ticket.getStudentId().equals(student.getId())) {
+            throw new NoResourceFoundException(HttpMethod.GET, "Ticket not found");
+        }
+        return ticket;
+    }
+
+    private void process(BookingTicket pending, Student student, BookingRequest bookingRequest) {
+        try {
+            // 等待开奖或写入期间都不占用处理线程
+            CompletableFuture<Void> result = bookingLottery.enter(student, bookingRequest);
+            if (result == null) {
+                result = bookingWriter.submit(student, bookingRequest);
+            }
+            result.whenComplete((ignored, error) -> complete(pending,
+                    error instanceof CompletionException ? error.getCause() : error));
+        } catch (Exception e) {
+            complete(pending, e);
+        }
+    }
+
+    private void complete(BookingTicket pending, Throwable error) {
+        BookingTicket.Status status;
+        String message;
+        if (error == null) {
+            status = BookingTicket.Status.BOOKED;
+            message = "Seat booked successfully";
+        } else if (error instanceof BookingConflictException || error instanceof AccessDeniedException
+                || error instanceof IllegalArgumentException) {
+            status = BookingTicket.Status.REJECTED;
+            message = error.getMessage();
+        } else if (error instanceof NoResourceFoundException) {
+            status = BookingTicket.Status.REJECTED;
+            message = "Seat not found";
+        } else if (error instanceof ServiceOverloadedException) {
+            status = BookingTicket.Status.FAILED;
+            message = error.getMessage();
+        } else if (error instanceof TimeoutException) {
+            status = BookingTicket.Status.FAILED;
+            message = "Booking is still being processed, please check your bookings later";
+        } else {
+            status = BookingTicket.Status.FAILED;
+            message = "Internal server error";
+        }
+        BookingTicket done = new BookingTicket(pending.getTicketId(), status, message, pending.getStudentId());
+        tickets.put(done.getTicketId(), done, System.currentTimeMillis() + ticketTtlMillis);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
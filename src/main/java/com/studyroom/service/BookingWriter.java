@@ -0,0 +1,237 @@
+package com.studyroom.service;
+
+import com.studyroom.dto.BookingRequest;
+import com.studyroom.exception.ServiceOverloadedException;
+import com.studyroom.model.Booking;
+import com.studyroom.model.Student;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.resource.NoResourceFoundException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * 预约的组提交写入。开启后请求线程完成校验和时段占用，
+ * 写库交给单个写线程，每攒够一批或等待数毫秒后在一个事务中提交。
+ * 调用方同步等待自己那条预约的结果；未开启时直接走 {@link SeatService#bookSeat}。
+ */
+@Service
+public class BookingWriter {
+
+    private final SeatService seatService;
+    private final BookingLottery bookingLottery;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final long timeoutMillis;
+    private final BlockingQueue<PendingBooking> queue;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    private final DistributionSummary batchSize;
+    private final Counter rejectedCounter;
+    private final Counter fallbackCounter;
+
+    public BookingWriter(SeatService seatService,
+                         BookingLottery bookingLottery,
+                         PlatformTransactionManager transactionManager,
+                         MeterRegistry meterRegistry,
+                         @Value("${booking.group-commit.enabled:false}") boolean enabled,
+                         @Value("${booking.group-commit.max-batch-size:32}") int maxBatchSize,
+                         @Value("${booking.group-commit.max-delay:5ms}") Duration maxDelay,
+                         @Value("${booking.group-commit.queue-capacity:1000}") int queueCapacity,
+                         @Value("${booking.group-commit.timeout:5s}") Duration timeout) {
+        this.seatService = seatService;
+        this.bookingLottery = bookingLottery;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.timeoutMillis = timeout.toMillis();
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        this.batchSize = DistributionSummary.builder("studyroom.booking.batch.size")
+                .description("Bookings committed per group-commit transaction")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("studyroom.booking.rejected")
+                .description("Bookings rejected because the group-commit queue was full")
+                .register(meterRegistry);
+        this.fallbackCounter = Counter.builder("studyroom.booking.batch.fallbacks")
+                .description("Batches that failed and were retried one booking per transaction")
+                .register(meterRegistry);
+        Gauge.builder("studyroom.booking.queue.size", queue, BlockingQueue::size)
+                .description("Bookings waiting for the group-commit writer")
+                .register(meterRegistry);
+
+        this.writer = new Thread(this::run, "booking-writer");
+        this.writer.setDaemon(true);
+        if (enabled) {
+            this.writer.start();
+        }
+    }
+
+    /**
+     * 预约座位，返回时预约已提交。抽签模式的房间等待开奖结果。
+     *
+     * @throws ServiceOverloadedException 写入队列已满或等待超时
+     */
+    public void book(Student student, BookingRequest bookingRequest) throws NoResourceFoundException {
+        CompletableFuture<Void> lottery = bookingLottery.enter(student, bookingRequest);
+        if (lottery != null) {
+            await(lottery, Long.MAX_VALUE);
+            return;
+        }
+        write(student, bookingRequest);
+    }
+
+    /**
+     * 先到先得地写入预约，不经过抽签
+     */
+    public void write(Student student, BookingRequest bookingRequest) throws NoResourceFoundException {
+        await(submit(student, bookingRequest), timeoutMillis);
+    }
+
+    /**
+     * 先到先得地提交预约但不等待写入，返回的 future 在预约提交或失败后完成。
+     * 未启用组提交时在当前线程写入，返回已完成的 future。
+     *
+     * @throws ServiceOverloadedException 写入队列已满
+     */
+    public CompletableFuture<Void> submit(Student student, BookingRequest bookingRequest) throws NoResourceFoundException {
+        if (!enabled) {
+            seatService.bookSeat(student, bookingRequest);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        // 冲突和权限错误在调用线程直接抛出，不进入队列
+        SeatService.PreparedBooking prepared = seatService.prepareBooking(student, bookingRequest);
+        PendingBooking pending = new PendingBooking(prepared, new CompletableFuture<>());
+        if (!running || !queue.offer(pending)) {
+            seatService.abandonBooking(prepared);
+            rejectedCounter.increment();
+            throw new ServiceOverloadedException("Too many booking requests, please try again later");
+        }
+        return pending.result();
+    }
+
+    private static void await(Future<Void> result, long timeoutMillis) throws NoResourceFoundException {
+        try {
+            result.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof NoResourceFoundException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof TimeoutException) {
+                throw new ServiceOverloadedException("Booking is still being processed, please check your bookings later");
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            // 写线程仍可能提交这条预约，客户端应查询预约记录确认
+            throw new ServiceOverloadedException("Booking is still being processed, please check your bookings later");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceOverloadedException("Booking interrupted");
+        }
+    }
+
+    private void run() {
+        List<PendingBooking> batch = new ArrayList<>(maxBatchSize);
+        while (running) {
+            try {
+                PendingBooking first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                // 最多再等 maxDelay，凑满一批立即提交
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < maxBatchSize) {
+                    queue.drainTo(batch, maxBatchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= maxBatchSize || remaining <= 0) {
+                        break;
+                    }
+                    PendingBooking next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                commit(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException e) {
+                fail(batch, e);
+            } finally {
+                batch.clear();
+            }
+        }
+        List<PendingBooking> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        fail(remaining, new ServiceOverloadedException("Booking service is shutting down"));
+    }
+
+    private void commit(List<PendingBooking> batch) {
+        List<Booking> bookings;
+        try {
+            bookings = transactionTemplate.execute(status -> batch.stream()
+                    .map(pending -> seatService.writeBooking(pending.prepared()))
+                    .toList());
+        } catch (RuntimeException e) {
+            // 整批回滚（例如其他实例已占用某个时段），逐条提交以确定每个请求的结果
+            fallbackCounter.increment();
+            batch.forEach(this::commitOne);
+            return;
+        }
+        batchSize.record(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            PendingBooking pending = batch.get(i);
+            seatService.confirmBooking(pending.prepared(), bookings.get(i));
+            pending.result().complete(null);
+        }
+    }
+
+    private void commitOne(PendingBooking pending) {
+        try {
+            Booking booking = transactionTemplate.execute(status -> seatService.writeBooking(pending.prepared()));
+            batchSize.record(1);
+            seatService.confirmBooking(pending.prepared(), booking);
+            pending.result().complete(null);
+        } catch (RuntimeException e) {
+            seatService.abandonBooking(pending.prepared());
+            pending.result().completeExceptionally(e);
+        }
+    }
+
+    private void fail(List<PendingBooking> batch, RuntimeException e) {
+        for (PendingBooking pending : batch) {
+            if (pending.result().completeExceptionally(e)) {
+                seatService.abandonBooking(pending.prepared());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        writer.interrupt();
+    }
+
+    private record PendingBooking(SeatService.PreparedBooking prepared, CompletableFuture<Void> result) {
+    }
+}
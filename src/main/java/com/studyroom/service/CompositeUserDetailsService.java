@@ -1,11 +1,12 @@
 package com.studyroom.service;
 
-import com.studyroom.model.Admin;
+import com.studyroom.util.AuthenticatedUser;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.context.annotation.Primary;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
@@ -14,18 +15,40 @@ import java.util.List;
 
 @Primary
 @Service
-public class CompositeUserDetailsService implements UserDetailsService {
+public class CompositeUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
 
     private final AdminService adminService;
     private final StudentService studentService;
+    private final UserDetailsCache userDetailsCache;
 
-    public CompositeUserDetailsService(@Lazy AdminService adminService,@Lazy StudentService studentService) {
+    public CompositeUserDetailsService(@Lazy AdminService adminService, @Lazy StudentService studentService,
+                                       UserDetailsCache userDetailsCache) {
         this.adminService = adminService;
         this.studentService = studentService;
+        this.userDetailsCache = userDetailsCache;
     }
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        return userDetailsCache.get(username, () -> loadFromDatabase(username));
+    }
+
+    /**
+     * 登录成功且密码需要重新哈希时由 DaoAuthenticationProvider 调用
+     */
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        UserDetails updated;
+        if (user instanceof AuthenticatedUser authenticatedUser && authenticatedUser.isStudent()) {
+            updated = studentService.updatePassword(user.getUsername(), newPassword);
+        } else {
+            updated = adminService.updatePassword(user.getUsername(), newPassword);
+        }
+        userDetailsCache.evict(user.getUsername());
+        return updated;
+    }
+
+    private UserDetails loadFromDatabase(String username) {
         try {
             return adminService.loadUserByUsername(username);
         } catch (UsernameNotFoundException e) {
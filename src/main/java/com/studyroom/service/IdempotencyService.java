@@ -0,0 +1,94 @@
+package com.studyroom.service;
+
+import com.studyroom.exception.ServiceOverloadedException;
+import com.studyroom.util.ExpiringCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 按 Idempotency-Key 记录写请求的响应。同一用户同一 key 的第一个请求负责执行，
+ * 重复请求（包括并发到达的）等待并复用这次执行的响应，不再重复执行业务逻辑。
+ * 只保留非 5xx 的响应，服务端错误允许客户端用同一 key 重试。
+ * 容量不足时只淘汰已完成的执行；全部为进行中的执行时拒绝新的 key，不会让重试再执行一次。
+ */
+@Service
+public class IdempotencyService {
+
+    private final ExpiringCache<String, Execution> executions;
+    private final long ttlMillis;
+    private final Counter replayCounter;
+
+    public IdempotencyService(MeterRegistry meterRegistry,
+                              @Value("${idempotency.max-entries:10000}") int maxEntries,
+                              @Value("${idempotency.ttl:10m}") Duration ttl) {
+        this.executions = new ExpiringCache<>(maxEntries, execution -> execution.response().isDone());
+        this.ttlMillis = ttl.toMillis();
+        this.replayCounter = Counter.builder("studyroom.idempotency.replays")
+                .description("Requests answered from a previous execution with the same Idempotency-Key")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 登记一次执行。返回的 Claim 中 leader 为 true 时由调用方执行请求并调用 {@link #complete}，
+     * 否则等待 execution 中已有的响应
+     *
+     * @param fingerprint 请求方法、路径与请求体的摘要，同一 key 用于不同请求时不会复用响应
+     * @throws ServiceOverloadedException 进行中的执行已达上限
+     */
+    public Claim claim(String owner, String key, String fingerprint) {
+        Execution fresh = new Execution(fingerprint);
+        Execution current = executions.putIfAbsent(owner + ':' + key, fresh, System.currentTimeMillis() + ttlMillis);
+        if (current == null) {
+            throw new ServiceOverloadedException("Too many requests in progress, please try again later");
+        }
+        return new Claim(current, current == fresh);
+    }
+
+    /**
+     * 等待并返回已有执行的响应，用于回放
+     */
+    public StoredResponse replay(Execution execution, long timeoutMillis)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        StoredResponse stored = execution.response().get(timeoutMillis, TimeUnit.MILLISECONDS);
+        replayCounter.increment();
+        return stored;
+    }
+
+    /**
+     * 记录执行结果并唤醒等待中的重复请求
+     */
+    public void complete(String owner, String key, Execution execution, StoredResponse response) {
+        if (response.status() >= 500) {
+            executions.invalidate(owner + ':' + key, execution);
+        }
+        execution.response().complete(response);
+    }
+
+    /**
+     * 执行异常结束时释放 key，等待中的重复请求收到同样的异常
+     */
+    public void abandon(String owner, String key, Execution execution, Throwable error) {
+        executions.invalidate(owner + ':' + key, execution);
+        execution.response().completeExceptionally(error);
+    }
+
+    public record Claim(Execution execution, boolean leader) {
+    }
+
+    public record Execution(String fingerprint, CompletableFuture<StoredResponse> response) {
+        Execution(String fingerprint) {
+            this(fingerprint, new CompletableFuture<>());
+        }
+    }
+
+    public record StoredResponse(int status, String contentType, byte[] body) {
+    }
+}
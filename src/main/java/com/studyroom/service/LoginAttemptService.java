@@ -0,0 +1,146 @@
+package com.studyroom.service;
+
+import com.studyroom.util.ExpiringCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 按用户名和来源地址统计最近一段时间内的登录失败次数。
+ * 超过阈值后直接拒绝，不再执行 BCrypt 校验。
+ */
+@Service
+public class LoginAttemptService {
+
+    // 滑动窗口被切分成的桶数
+    private static final int BUCKETS = 12;
+
+    private final ExpiringCache<String, SlidingWindow> windows;
+    private final long windowMillis;
+    private final long bucketMillis;
+    private final int maxFailuresPerUser;
+    private final int maxFailuresPerAddress;
+
+    private final Counter failureCounter;
+    private final Counter blockedCounter;
+
+    public LoginAttemptService(MeterRegistry meterRegistry,
+                               @Value("${security.login-throttle.window:1m}") Duration window,
+                               @Value("${security.login-throttle.max-failures-per-user:10}") int maxFailuresPerUser,
+                               @Value("${security.login-throttle.max-failures-per-address:50}") int maxFailuresPerAddress,
+                               @Value("${security.login-throttle.max-tracked-keys:100000}") int maxTrackedKeys) {
+        this.windows = new ExpiringCache<>(maxTrackedKeys);
+        this.windowMillis = window.toMillis();
+        this.bucketMillis = Math.max(1, windowMillis / BUCKETS);
+        this.maxFailuresPerUser = maxFailuresPerUser;
+        this.maxFailuresPerAddress = maxFailuresPerAddress;
+
+        this.failureCounter = Counter.builder("studyroom.login.failures")
+                .description("Failed login attempts")
+                .register(meterRegistry);
+        this.blockedCounter = Counter.builder("studyroom.login.throttled")
+                .description("Login attempts rejected before hashing because of too many failures")
+                .register(meterRegistry);
+        Gauge.builder("studyroom.login.throttle.keys", windows, ExpiringCache::size)
+                .description("Usernames and addresses with recent login failures")
+                .register(meterRegistry);
+        FunctionCounter.builder("studyroom.login.throttle.evictions", windows, ExpiringCache::evictionCount)
+                .description("Failure windows dropped because the tracker was full")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 用户名或来源地址在窗口内失败次数达到阈值时返回 true
+     */
+    public boolean isBlocked(String username, String address) {
+        long now = System.currentTimeMillis();
+        boolean blocked = failures(userKey(username), now) >= maxFailuresPerUser
+                || failures(addressKey(address), now) >= maxFailuresPerAddress;
+        if (blocked) {
+            blockedCounter.increment();
+        }
+        return blocked;
+    }
+
+    public void recordFailure(String username, String address) {
+        long now = System.currentTimeMillis();
+        failureCounter.increment();
+        increment(userKey(username), now);
+        increment(addressKey(address), now);
+    }
+
+    /**
+     * 登录成功后清除该用户名的失败记录，来源地址的记录保留
+     */
+    public void recordSuccess(String username) {
+        windows.invalidate(userKey(username));
+    }
+
+    public long getRetryAfterSeconds() {
+        return Math.max(1, windowMillis / 1000);
+    }
+
+    private long failures(String key, long now) {
+        SlidingWindow window = windows.get(key);
+        return window == null ? 0 : window.sum(now);
+    }
+
+    private void increment(String key, long now) {
+        SlidingWindow window = windows.putIfAbsent(key, new SlidingWindow(), now + windowMillis);
+        window.increment(now);
+        // 每次失败都把过期时间顺延一个窗口
+        windows.put(key, window, now + windowMillis);
+    }
+
+    private static String userKey(String username) {
+        return "u:" + username;
+    }
+
+    private static String addressKey(String address) {
+        return "a:" + address;
+    }
+
+    /**
+     * 无锁的滑动窗口计数器。每个桶的高位保存桶的时间序号，低 20 位保存计数，
+     * 通过 CAS 更新，旧的桶在下一次写入时被覆盖。
+     */
+    private class SlidingWindow {
+
+        private static final int COUNT_BITS = 20;
+        private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+        void increment(long now) {
+            long epoch = now / bucketMillis;
+            int index = (int) (epoch % BUCKETS);
+            while (true) {
+                long current = buckets.get(index);
+                long next = (current >>> COUNT_BITS) == epoch
+                        ? current + ((current & COUNT_MASK) < COUNT_MASK ? 1 : 0)
+                        : (epoch << COUNT_BITS) | 1;
+                if (buckets.compareAndSet(index, current, next)) {
+                    return;
+                }
+            }
+        }
+
+        long sum(long now) {
+            long epoch = now / bucketMillis;
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                long value = buckets.get(i);
+                if (epoch - (value >>> COUNT_BITS) < BUCKETS) {
+                    total += value & COUNT_MASK;
+                }
+            }
+            return total;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.studyroom.service;
+
+import com.studyroom.exception.LoginThrottledException;
+import com.studyroom.exception.ServiceOverloadedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 登录校验（BCrypt）放到独立的有界线程池中执行，限制同时进行的 BCrypt 计算数量，避免集中登录时耗尽 CPU。
+ * 请求线程仍会同步等待校验结果（最多等待超时时间），并不会因此被释放；
+ * 线程和队列都满时立即拒绝并返回 503，不再排队占用请求线程。
+ */
+@Service
+public class LoginService {
+
+    private final AuthenticationManager authenticationManager;
+    private final LoginAttemptService loginAttemptService;
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMillis;
+
+    private final Timer successTimer;
+    private final Timer failureTimer;
+    private final Counter rejectedCounter;
+
+    public LoginService(AuthenticationManager authenticationManager,
+                        LoginAttemptService loginAttemptService,
+                        MeterRegistry meterRegistry,
+                        @Value("${security.login.threads:0}") int threads,
+                        @Value("${security.login.queue-capacity:100}") int queueCapacity,
+                        @Value("${security.login.timeout:5s}") Duration timeout) {
+        this.authenticationManager = authenticationManager;
+        this.loginAttemptService = loginAttemptService;
+        this.timeoutMillis = timeout.toMillis();
+
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "login-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        this.successTimer = Timer.builder("studyroom.login.latency")
+                .tag("outcome", "success")
+                .description("Time spent verifying credentials, including queueing")
+                .register(meterRegistry);
+        this.failureTimer = Timer.builder("studyroom.login.latency")
+                .tag("outcome", "failure")
+                .description("Time spent verifying credentials, including queueing")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("studyroom.login.rejected")
+                .description("Login attempts rejected because the login pool was saturated")
+                .register(meterRegistry);
+        Gauge.builder("studyroom.login.queue.size", executor, e -> e.getQueue().size())
+                .description("Login attempts waiting for a hashing thread")
+                .register(meterRegistry);
+        Gauge.builder("studyroom.login.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Login attempts currently being hashed")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 在登录线程池中校验用户名和密码
+     *
+     * @param address 请求的来源地址，用于失败次数限制
+     * @throws LoginThrottledException 用户名或来源地址近期失败次数过多
+     * @throws ServiceOverloadedException 线程池已满或等待超时
+     */
+    public Authentication authenticate(String username, String password, String address) {
+        if (loginAttemptService.isBlocked(username, address)) {
+            throw new LoginThrottledException("Too many failed login attempts, please try again later",
+                    loginAttemptService.getRetryAfterSeconds());
+        }
+
+        UsernamePasswordAuthenticationToken token = new UsernamePasswordAuthenticationToken(username, password);
+        long start = System.nanoTime();
+
+        Future<Authentication> future;
+        try {
+            future = executor.submit(() -> authenticationManager.authenticate(token));
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            throw new ServiceOverloadedException("Too many login requests, please try again later");
+        }
+
+        boolean success = false;
+        try {
+            // 请求线程在此阻塞等待，线程池只限制并发的 BCrypt 计算
+            Authentication authentication = future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            success = true;
+            loginAttemptService.recordSuccess(username);
+            return authentication;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof AuthenticationException cause) {
+                loginAttemptService.recordFailure(username, address);
+                throw cause;
+            }
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            rejectedCounter.increment();
+            throw new ServiceOverloadedException("Too many login requests, please try again later");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new ServiceOverloadedException("Login interrupted");
+        } finally {
+            (success ? successTimer : failureTimer).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
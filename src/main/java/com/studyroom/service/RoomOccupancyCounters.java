@@ -0,0 +1,99 @@
+package com.studyroom.service;
+
+import com.studyroom.dto.RoomAvailability;
+import com.studyroom.dto.SeatStatusCount;
+import com.studyroom.model.Seat;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 各自习室空闲与占用座位数的内存计数。启动时由一次聚合查询建立，
+ * 之后在座位状态变化的事务提交后增减，查询不访问数据库。
+ */
+@Component
+public class RoomOccupancyCounters {
+
+    private final Map<Long, Counts> byRoom = new ConcurrentHashMap<>();
+
+    /**
+     * 用数据库中的统计结果重建计数，没有座位的自习室计数为 0
+     */
+    public void load(Collection<Long> roomIds, Collection<SeatStatusCount> counts) {
+        Map<Long, Counts> rebuilt = new ConcurrentHashMap<>();
+        roomIds.forEach(roomId -> rebuilt.put(roomId, new Counts()));
+        for (SeatStatusCount count : counts) {
+            AtomicLong counter = rebuilt.computeIfAbsent(count.getRoomId(), k -> new Counts()).of(count.getStatus());
+            if (counter != null) {
+                counter.addAndGet(count.getCount());
+            }
+        }
+        byRoom.clear();
+        byRoom.putAll(rebuilt);
+    }
+
+    public void addRoom(Long roomId) {
+        byRoom.putIfAbsent(roomId, new Counts());
+    }
+
+    public void removeRoom(Long roomId) {
+        byRoom.remove(roomId);
+    }
+
+    /**
+     * 记录一个座位的状态变化。from 为 null 表示新增座位，to 为 null 表示删除座位
+     */
+    public void transition(Long roomId, Seat.SeatStatus from, Seat.SeatStatus to) {
+        transition(roomId, from, to, 1);
+    }
+
+    /**
+     * 记录同一自习室中 count 个座位的相同状态变化
+     */
+    public void transition(Long roomId, Seat.SeatStatus from, Seat.SeatStatus to, int count) {
+        if (from == to || count == 0) {
+            return;
+        }
+        Counts counts = byRoom.computeIfAbsent(roomId, k -> new Counts());
+        AtomicLong decremented = counts.of(from);
+        if (decremented != null) {
+            decremented.addAndGet(-count);
+        }
+        AtomicLong incremented = counts.of(to);
+        if (incremented != null) {
+            incremented.addAndGet(count);
+        }
+    }
+
+    public long available(Long roomId) {
+        Counts counts = byRoom.get(roomId);
+        return counts == null ? 0 : counts.available.get();
+    }
+
+    public List<RoomAvailability> snapshot() {
+        return byRoom.entrySet().stream()
+                .map(entry -> new RoomAvailability(entry.getKey(),
+                        entry.getValue().available.get(), entry.getValue().occupied.get()))
+                .toList();
+    }
+
+    private static final class Counts {
+        private final AtomicLong available = new AtomicLong();
+        private final AtomicLong occupied = new AtomicLong();
+
+        // 只统计空闲与占用，其他状态不计数
+        private AtomicLong of(Seat.SeatStatus status) {
+            if (status == Seat.SeatStatus.AVAILABLE) {
+                return available;
+            }
+            if (status == Seat.SeatStatus.OCCUPIED) {
+                return occupied;
+            }
+            return null;
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.studyroom.service;
 
+import com.studyroom.dto.RoomAvailability;
 import com.studyroom.dto.RoomRequest;
+import com.studyroom.dto.RoomSeatCount;
 import com.studyroom.model.Booking;
 import com.studyroom.model.Room;
 import com.studyroom.model.Seat;
@@ -8,7 +10,11 @@ import com.studyroom.model.Student;
 import com.studyroom.repository.BookingRepository;
 import com.studyroom.repository.RoomRepository;
 import com.studyroom.repository.SeatRepository;
+import com.studyroom.repository.SlotClaimRepository;
+import com.studyroom.util.TransactionHooks;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -16,6 +22,7 @@ import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 @Service
@@ -25,6 +32,15 @@ public class RoomService {
     private final RoomRepository roomRepository;
     private final BookingRepository bookingRepository;
     private final SeatRepository seatRepository;
+    private final BookingIntervalIndex bookingIntervalIndex;
+    private final SlotClaimRepository slotClaimRepository;
+    private final RoomOccupancyCounters roomOccupancyCounters;
+    private final SeatMapSnapshots seatMapSnapshots;
+    private final SeatSlotBitmaps seatSlotBitmaps;
+    private final SeatSearchIndex seatSearchIndex;
+    private final BookingLottery bookingLottery;
+
+    private static final int DEFAULT_SEARCH_LIMIT = 50;
 
     public Room createRoom(RoomRequest roomRequest) {
         // 检查自习室是否已存在
@@ -40,8 +56,14 @@ public class RoomService {
         room.setCloseTime(Instant.ofEpochMilli(roomRequest.getCloseTime()));
         room.setLocation(roomRequest.getLocation());
         room.setStatus(roomRequest.getStatus());
-
-        return roomRepository.save(room);
+        room.setLotteryWindow(roomRequest.getLotteryWindow());
+
+        Room saved = roomRepository.save(room);
+        roomOccupancyCounters.addRoom(saved.getId());
+        seatMapSnapshots.roomsChanged();
+        seatSearchIndex.putRoom(saved);
+        bookingLottery.putRoom(saved);
+        return saved;
     }
 
     @Transactional
@@ -52,9 +74,19 @@ public class RoomService {
         List<Seat> seats = seatRepository.findByRoomId(roomId);
         for (Seat seat : seats) {
             bookingRepository.deleteBySeatId(seat.getId());
+            slotClaimRepository.deleteBySeatId(seat.getId());
             seatRepository.delete(seat);
+            Long seatId = seat.getId();
+            TransactionHooks.afterCommit(() -> bookingIntervalIndex.removeSeat(seatId));
         }
         roomRepository.delete(room);
+        TransactionHooks.afterCommit(() -> {
+            roomOccupancyCounters.removeRoom(roomId);
+            seatSlotBitmaps.removeRoom(roomId);
+            seatSearchIndex.removeRoom(roomId);
+            bookingLottery.removeRoom(roomId);
+            seatMapSnapshots.roomRemoved(roomId);
+        });
     }
 
     public List<Room> getAllRooms() {
@@ -93,7 +125,15 @@ public class RoomService {
             room.setName(roomRequest.getRoomName());
         }
 
-        return roomRepository.save(room);
+        if (roomRequest.getLotteryWindow() != null) {
+            room.setLotteryWindow(roomRequest.getLotteryWindow());
+        }
+
+        Room saved = roomRepository.save(room);
+        seatMapSnapshots.roomsChanged();
+        seatSearchIndex.putRoom(saved);
+        bookingLottery.putRoom(saved);
+        return saved;
     }
 
     public Room getRoomById(Long id) {
@@ -101,18 +141,70 @@ public class RoomService {
                 .orElseThrow(() -> new RuntimeException("Room not found"));
     }
 
-    public Map<Room, Long> getRoomsWithAvailableSeats() {
+    /**
+     * 各自习室的空闲座位数，按自习室主键索引，直接读取内存计数
+     */
+    public Map<Long, Long> getRoomsWithAvailableSeats() {
+        return roomOccupancyCounters.snapshot().stream()
+                .collect(Collectors.toMap(RoomAvailability::getRoomId, RoomAvailability::getAvailableCount));
+    }
+
+    /**
+     * 各自习室的空闲与占用座位数，直接读取内存计数
+     */
+    public List<RoomAvailability> getRoomAvailability() {
+        return roomOccupancyCounters.snapshot();
+    }
+
+    /**
+     * 启动时用一次聚合查询建立各自习室的座位计数
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOccupancyCounters() {
+        List<Long> roomIds = roomRepository.findAll().stream().map(Room::getId).toList();
+        roomOccupancyCounters.load(roomIds, seatRepository.countSeatsByRoomAndStatus());
+    }
+
+    /**
+     * 启动时加载座位二级索引与各自习室的抽签窗口，之后随自习室与座位的增删改维护
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadSeatSearchIndex() {
         List<Room> rooms = roomRepository.findAll();
-        return rooms.stream().collect(Collectors.toMap(
-                room -> room,
-                room -> seatRepository.findByRoomId(room.getId()).stream()
-                        .filter(seat -> seat.getStatus() == Seat.SeatStatus.AVAILABLE)
-                        .count()
-        ));
+        seatSearchIndex.load(rooms, seatRepository.findAll());
+        bookingLottery.load(rooms);
+    }
+
+    /**
+     * 所有自习室的座位数与空闲座位数，按自习室主键索引；没有座位的自习室不在其中
+     */
+    public Map<Long, RoomSeatCount> getSeatCounts() {
+        return seatRepository.countSeatsByRoom(Seat.SeatStatus.AVAILABLE).stream()
+                .collect(Collectors.toMap(RoomSeatCount::getRoomId, count -> count));
     }
 
     public List<Seat> searchSeats(String query) {
-        return seatRepository.searchSeats(query);
+        return searchSeats(query, DEFAULT_SEARCH_LIMIT);
+    }
+
+    /**
+     * 按自习室名称、位置或座位编号搜索座位。匹配与排序由内存 n-gram 索引完成，
+     * 只按主键加载命中的前 limit 个座位，不再对座位表做 LIKE '%q%' 扫描。
+     */
+    public List<Seat> searchSeats(String query, int limit) {
+        if (limit <= 0 || limit > SeatService.MAX_SEARCH_LIMIT) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + SeatService.MAX_SEARCH_LIMIT);
+        }
+        List<Long> seatIds = seatSearchIndex.searchText(query, limit);
+        if (seatIds.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Seat> seats = seatRepository.findAllById(seatIds).stream()
+                .collect(Collectors.toMap(Seat::getId, seat -> seat));
+        return seatIds.stream()
+                .map(seats::get)
+                .filter(Objects::nonNull)
+                .toList();
     }
 
 //    @Transactional
@@ -0,0 +1,184 @@
+package com.studyroom.service;
+
+import com.studyroom.dto.SeatHold;
+import com.studyroom.exception.BookingConflictException;
+import com.studyroom.exception.ServiceOverloadedException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 座位时段的内存保留。学生选择时段期间先保留座位，
+ * 其他学生预约重叠时段时直接被拒绝，不读数据库。
+ * 每个学生同时只有一个保留，新的保留替换旧的；过期的保留在访问时和定时任务中清理。
+ * 同一座位的保留检查、预约占用与保留增删都在 {@code bySeat} 该座位的条目上原子执行，
+ * 座位的保留全部移除后条目随之删除。
+ */
+@Component
+public class SeatHoldRegistry {
+
+    private final BookingIntervalIndex bookingIntervalIndex;
+    private final long ttlMillis;
+    private final int maxHolds;
+
+    private final Map<Long, List<SeatHold>> bySeat = new ConcurrentHashMap<>();
+    private final Map<String, SeatHold> byToken = new ConcurrentHashMap<>();
+    private final Map<Long, SeatHold> byStudent = new ConcurrentHashMap<>();
+
+    public SeatHoldRegistry(BookingIntervalIndex bookingIntervalIndex,
+                            @Value("${booking.hold.ttl:60s}") Duration ttl,
+                            @Value("${booking.hold.max-holds:10000}") int maxHolds) {
+        this.bookingIntervalIndex = bookingIntervalIndex;
+        this.ttlMillis = ttl.toMillis();
+        this.maxHolds = maxHolds;
+    }
+
+    /**
+     * 保留座位时段。时段已被预约或被其他学生保留时抛出 BookingConflictException
+     */
+    public SeatHold hold(long seatId, long studentId, Instant startTime, Instant endTime) {
+        if (!startTime.isBefore(endTime)) {
+            throw new IllegalArgumentException("Booking end time must be after start time");
+        }
+        if (byToken.size() >= maxHolds) {
+            purgeExpired();
+            if (byToken.size() >= maxHolds) {
+                throw new ServiceOverloadedException("Too many seat holds, please try again later");
+            }
+        }
+
+        long now = System.currentTimeMillis();
+        SeatHold hold = new SeatHold(UUID.randomUUID().toString(), seatId, startTime, endTime,
+                Instant.ofEpochMilli(now + ttlMillis), studentId);
+        bySeat.compute(seatId, (k, holds) -> {
+            if (holds != null && conflicts(holds, studentId, startTime, endTime, now)) {
+                throw new BookingConflictException("Seat is held by another student");
+            }
+            if (bookingIntervalIndex.overlapsSeat(seatId, startTime, endTime)) {
+                throw new BookingConflictException("Seat is already booked for this time");
+            }
+            List<SeatHold> current = holds == null ? new ArrayList<>() : holds;
+            current.removeIf(existing -> existing.isExpired(now));
+            current.add(hold);
+            byToken.put(hold.getHoldToken(), hold);
+            return current;
+        });
+        SeatHold previous = byStudent.put(studentId, hold);
+        if (previous != null) {
+            remove(previous);
+        }
+        return hold;
+    }
+
+    /**
+     * 座位时段被其他学生保留时抛出 BookingConflictException，自己的保留不影响预约
+     */
+    public void ensureNotHeld(long seatId, long studentId, Instant startTime, Instant endTime) {
+        long now = System.currentTimeMillis();
+        bySeat.computeIfPresent(seatId, (k, holds) -> {
+            if (conflicts(holds, studentId, startTime, endTime, now)) {
+                throw new BookingConflictException("Seat is held by another student");
+            }
+            return holds;
+        });
+    }
+
+    /**
+     * 检查座位时段未被其他学生保留，并在同一原子操作中占用预约时段，
+     * 避免检查之后、占用之前其他学生保留了该时段
+     */
+    public BookingIntervalIndex.Reservation reserve(long seatId, long studentId, Instant startTime, Instant endTime) {
+        long now = System.currentTimeMillis();
+        BookingIntervalIndex.Reservation[] reservation = new BookingIntervalIndex.Reservation[1];
+        bySeat.compute(seatId, (k, holds) -> {
+            if (holds != null && conflicts(holds, studentId, startTime, endTime, now)) {
+                throw new BookingConflictException("Seat is held by another student");
+            }
+            reservation[0] = bookingIntervalIndex.reserve(seatId, studentId, startTime, endTime);
+            return holds;
+        });
+        return reservation[0];
+    }
+
+    /**
+     * 学生自己的未过期保留，不存在时返回 null
+     */
+    public SeatHold find(String holdToken, long studentId) {
+        SeatHold hold = byToken.get(holdToken);
+        if (hold == null || hold.getStudentId() != studentId || hold.isExpired(System.currentTimeMillis())) {
+            return null;
+        }
+        return hold;
+    }
+
+    /**
+     * 释放学生在该座位上的保留，预约确认后调用
+     */
+    public void releaseForBooking(long studentId, long seatId) {
+        SeatHold hold = byStudent.get(studentId);
+        if (hold != null && hold.getSeatId() == seatId && byStudent.remove(studentId, hold)) {
+            remove(hold);
+        }
+    }
+
+    /**
+     * 学生主动放弃保留，返回是否存在该保留
+     */
+    public boolean release(String holdToken, long studentId) {
+        SeatHold hold = byToken.get(holdToken);
+        if (hold == null || hold.getStudentId() != studentId) {
+            return false;
+        }
+        byStudent.remove(studentId, hold);
+        remove(hold);
+        return true;
+    }
+
+    public int size() {
+        return byToken.size();
+    }
+
+    /**
+     * 有保留的座位数
+     */
+    int seatCount() {
+        return bySeat.size();
+    }
+
+    @Scheduled(fixedDelayString = "${booking.hold.purge-interval:PT1M}")
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        byToken.values().stream()
+                .filter(hold -> hold.isExpired(now))
+                .toList()
+                .forEach(hold -> {
+                    byStudent.remove(hold.getStudentId(), hold);
+                    remove(hold);
+                });
+    }
+
+    private void remove(SeatHold hold) {
+        byToken.remove(hold.getHoldToken(), hold);
+        bySeat.computeIfPresent(hold.getSeatId(), (k, holds) -> {
+            holds.remove(hold);
+            return holds.isEmpty() ? null : holds;
+        });
+    }
+
+    private static boolean conflicts(List<SeatHold> holds, long studentId, Instant startTime, Instant endTime, long now) {
+        for (SeatHold hold : holds) {
+            if (hold.getStudentId() != studentId && !hold.isExpired(now) && hold.overlaps(startTime, endTime)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
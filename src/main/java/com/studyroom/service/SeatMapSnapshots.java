@@ -0,0 +1,127 @@
+package com.studyroom.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * 座位图与自习室列表的响应快照。每个自习室有单调递增的版本号，
+ * 座位或预约变化的事务提交后递增；快照缓存序列化后的 JSON 字节，
+ * 版本未变时直接复用，客户端带上相同的 ETag 时返回 304。
+ * 座位图只包含当天的预约，日期也是 ETag 的一部分。
+ * 版本号只在本进程内有效，ETag 另带一个启动时随机生成的纪元，
+ * 重启或换到其他实例后旧 ETag 不会再匹配。
+ */
+@Component
+public class SeatMapSnapshots {
+
+    private final ObjectMapper objectMapper;
+    private final String epoch = Long.toString(new SecureRandom().nextLong() & Long.MAX_VALUE, 36);
+
+    private final Map<Long, AtomicLong> roomVersions = new ConcurrentHashMap<>();
+    private final AtomicLong roomsVersion = new AtomicLong();
+    private final Map<Long, Snapshot> seatMaps = new ConcurrentHashMap<>();
+    private final AtomicReference<Snapshot> rooms = new AtomicReference<>();
+
+    public SeatMapSnapshots(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * 自习室的座位或预约发生变化，座位图与自习室列表（含座位数）都需要重建
+     */
+    public void roomChanged(Long roomId) {
+        roomVersions.computeIfAbsent(roomId, k -> new AtomicLong()).incrementAndGet();
+        roomsVersion.incrementAndGet();
+    }
+
+    /**
+     * 自习室本身的信息变化，只影响自习室列表
+     */
+    public void roomsChanged() {
+        roomsVersion.incrementAndGet();
+    }
+
+    public void roomRemoved(Long roomId) {
+        roomChanged(roomId);
+        seatMaps.remove(roomId);
+    }
+
+    public String seatMapETag(Long roomId) {
+        return seatMapETag(roomId, roomVersion(roomId));
+    }
+
+    public String roomsETag() {
+        return roomsETag(roomsVersion.get());
+    }
+
+    /**
+     * 返回当前版本的座位图，版本变化后由 builder 重建
+     */
+    public Snapshot seatMap(Long roomId, Supplier<Object> builder) {
+        // 先读版本再查询，查询期间发生的变化会使快照落后于版本，下次请求重建
+        long version = roomVersion(roomId);
+        String etag = seatMapETag(roomId, version);
+        Snapshot cached = seatMaps.get(roomId);
+        if (cached != null && cached.etag().equals(etag)) {
+            return cached;
+        }
+        Snapshot built = new Snapshot(version, etag, serialize(builder.get()));
+        seatMaps.merge(roomId, built, SeatMapSnapshots::newer);
+        return built;
+    }
+
+    /**
+     * 返回当前版本的自习室列表，版本变化后由 builder 重建
+     */
+    public Snapshot rooms(Supplier<Object> builder) {
+        long version = roomsVersion.get();
+        String etag = roomsETag(version);
+        Snapshot cached = rooms.get();
+        if (cached != null && cached.etag().equals(etag)) {
+            return cached;
+        }
+        Snapshot built = new Snapshot(version, etag, serialize(builder.get()));
+        rooms.accumulateAndGet(built, SeatMapSnapshots::newer);
+        return built;
+    }
+
+    private long roomVersion(Long roomId) {
+        AtomicLong version = roomVersions.get(roomId);
+        return version == null ? 0 : version.get();
+    }
+
+    private String seatMapETag(Long roomId, long version) {
+        return "\"seats-" + epoch + "-" + roomId + "-" + version + "-" + LocalDate.now() + "\"";
+    }
+
+    private String roomsETag(long version) {
+        return "\"rooms-" + epoch + "-" + version + "\"";
+    }
+
+    private static Snapshot newer(Snapshot current, Snapshot candidate) {
+        return current == null || candidate.version() >= current.version() ? candidate : current;
+    }
+
+    private byte[] serialize(Object body) {
+        try {
+            return objectMapper.writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 不可变的响应快照，body 不应被修改
+     */
+    public record Snapshot(long version, String etag, byte[] body) {
+    }
+}
@@ -0,0 +1,432 @@
+package com.studyroom.service;
+
+import com.studyroom.dto.SeatCandidate;
+import com.studyroom.model.Room;
+import com.studyroom.model.Seat;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+/**
+ * 座位的内存二级索引，按 (自习室类型, 是否有插座, 位置) 分桶，桶内按自习室、座位主键排序。
+ * 跨自习室找座位时只归并条件命中的桶，找满所需数量即停止，不扫描座位表；时段是否空闲由调用方传入的条件判断。
+ * 另为自习室名称、位置与座位编号建立 1 至 3 字符的 n-gram 倒排表，子串搜索取 n-gram 倒排的交集后再校验。
+ * 自习室与座位增删改时同步维护，启动时从数据库加载。
+ */
+@Component
+public class SeatSearchIndex {
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, RoomEntry> rooms = new HashMap<>();
+    private final Map<Long, SeatEntry> seats = new HashMap<>();
+    private final Map<Long, Set<Long>> seatsByRoom = new HashMap<>();
+    private final Map<AttributeKey, Map<String, NavigableSet<SeatEntry>>> byAttributes = new HashMap<>();
+    private final Map<String, Set<Long>> roomGrams = new HashMap<>();
+    private final Map<String, Set<Long>> seatGrams = new HashMap<>();
+
+    private static final int GRAM = 3;
+    private static final Comparator<SeatEntry> BY_ROOM_AND_SEAT =
+            Comparator.comparing(SeatEntry::roomId).thenComparing(SeatEntry::seatId);
+
+    /**
+     * 用数据库中的自习室与座位重建索引，启动时调用
+     */
+    public void load(Collection<Room> allRooms, Collection<Seat> allSeats) {
+        lock.writeLock().lock();
+        try {
+            rooms.clear();
+            seats.clear();
+            seatsByRoom.clear();
+            byAttributes.clear();
+            roomGrams.clear();
+            seatGrams.clear();
+            allRooms.forEach(this::putRoomLocked);
+            allSeats.forEach(this::putSeatLocked);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 自习室新建或修改后调用，类型与位置变化时其座位移到新的桶
+     */
+    public void putRoom(Room room) {
+        lock.writeLock().lock();
+        try {
+            putRoomLocked(room);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeRoom(Long roomId) {
+        lock.writeLock().lock();
+        try {
+            Set<Long> seatIds = seatsByRoom.remove(roomId);
+            if (seatIds != null) {
+                seatIds.forEach(seatId -> {
+                    SeatEntry seat = seats.remove(seatId);
+                    unindex(seat);
+                    removeGrams(seatGrams, seatText(seat), seatId);
+                });
+            }
+            RoomEntry room = rooms.remove(roomId);
+            if (room != null) {
+                removeGrams(roomGrams, roomText(room), roomId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 座位新建或修改后调用
+     */
+    public void putSeat(Seat seat) {
+        lock.writeLock().lock();
+        try {
+            putSeatLocked(seat);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeSeat(Long seatId) {
+        lock.writeLock().lock();
+        try {
+            SeatEntry entry = seats.remove(seatId);
+            if (entry != null) {
+                unindex(entry);
+                removeGrams(seatGrams, seatText(entry), seatId);
+                Set<Long> seatIds = seatsByRoom.get(entry.roomId());
+                if (seatIds != null) {
+                    seatIds.remove(seatId);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 按条件查找座位，跳过停用的座位和自习室，按自习室、座位主键顺序返回前 limit 个满足 available 的座位
+     *
+     * @param types          允许的自习室类型
+     * @param socketRequired 为 true 时只返回有插座的座位
+     * @param location       自习室位置，为空时不限
+     */
+    public List<SeatCandidate> search(Collection<Integer> types, boolean socketRequired, String location,
+                                      Predicate<SeatCandidate> available, int limit) {
+        lock.readLock().lock();
+        try {
+            List<Iterator<SeatEntry>> buckets = new ArrayList<>();
+            for (Integer type : types) {
+                collect(new AttributeKey(type, true), location, buckets);
+                if (!socketRequired) {
+                    collect(new AttributeKey(type, false), location, buckets);
+                }
+            }
+            // 各桶已按自习室、座位主键排序，多路归并后依次检查，凑满 limit 个即返回
+            PriorityQueue<BucketCursor> cursors = new PriorityQueue<>(Math.max(1, buckets.size()),
+                    Comparator.comparing(BucketCursor::head, BY_ROOM_AND_SEAT));
+            buckets.forEach(bucket -> BucketCursor.advance(bucket, cursors));
+
+            List<SeatCandidate> result = new ArrayList<>();
+            while (result.size() < limit && !cursors.isEmpty()) {
+                BucketCursor cursor = cursors.poll();
+                BucketCursor.advance(cursor.rest(), cursors);
+                SeatEntry seat = cursor.head();
+                RoomEntry room = rooms.get(seat.roomId());
+                if (!seat.available() || room == null || !room.open()) {
+                    continue;
+                }
+                SeatCandidate candidate = toCandidate(seat, room);
+                if (available.test(candidate)) {
+                    result.add(candidate);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 自习室内未停用的座位，按座位主键排序，不检查自习室是否开放
+     */
+    public List<SeatCandidate> seatsOf(Long roomId) {
+        lock.readLock().lock();
+        try {
+            RoomEntry room = rooms.get(roomId);
+            if (room == null) {
+                return List.of();
+            }
+            return seatsByRoom.getOrDefault(roomId, Set.of()).stream()
+                    .sorted()
+                    .map(seats::get)
+                    .filter(SeatEntry::available)
+                    .map(seat -> toCandidate(seat, room))
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 自习室名称、位置或座位编号包含 query（不区分大小写）的座位主键，按匹配程度排序，最多 limit 个。
+     * 座位编号匹配优先于自习室名称，名称优先于位置；同一字段完全相同优先于前缀，前缀优先于包含。
+     */
+    public List<Long> searchText(String query, int limit) {
+        String text = normalize(query);
+        if (text.isEmpty()) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            Map<Long, Integer> scores = new HashMap<>();
+            for (Long roomId : lookup(roomGrams, text)) {
+                RoomEntry room = rooms.get(roomId);
+                int score = Math.max(score(room.name(), text, 2), score(room.location(), text, 1));
+                if (score > 0) {
+                    seatsByRoom.getOrDefault(roomId, Set.of()).forEach(seatId -> scores.merge(seatId, score, Math::max));
+                }
+            }
+            for (Long seatId : lookup(seatGrams, text)) {
+                SeatEntry seat = seats.get(seatId);
+                int score = Math.max(score(seat.seatNumber(), text, 3), score(seat.seatName(), text, 3));
+                if (score > 0) {
+                    scores.merge(seatId, score, Math::max);
+                }
+            }
+            return scores.entrySet().stream()
+                    .sorted(Map.Entry.<Long, Integer>comparingByValue().reversed()
+                            .thenComparing(entry -> seats.get(entry.getKey()).roomId())
+                            .thenComparing(Map.Entry::getKey))
+                    .limit(limit)
+                    .map(Map.Entry::getKey)
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 座位所在自习室的主键，索引中没有该座位时返回 null
+     */
+    public Long roomOf(Long seatId) {
+        lock.readLock().lock();
+        try {
+            SeatEntry seat = seats.get(seatId);
+            return seat == null ? null : seat.roomId();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return seats.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void collect(AttributeKey key, String location, List<Iterator<SeatEntry>> buckets) {
+        Map<String, NavigableSet<SeatEntry>> byLocation = byAttributes.get(key);
+        if (byLocation == null) {
+            return;
+        }
+        if (location == null || location.isBlank()) {
+            byLocation.values().forEach(bucket -> buckets.add(bucket.iterator()));
+            return;
+        }
+        NavigableSet<SeatEntry> bucket = byLocation.get(normalize(location));
+        if (bucket != null) {
+            buckets.add(bucket.iterator());
+        }
+    }
+
+    private void putRoomLocked(Room room) {
+        if (room.getId() == null) {
+            return;
+        }
+        RoomEntry entry = new RoomEntry(room.getId(), room.getName(), room.getType() == null ? 0 : room.getType(),
+                room.getLocation(), room.getStatus() == null || room.getStatus() == 0);
+        RoomEntry previous = rooms.put(room.getId(), entry);
+        if (previous != null) {
+            removeGrams(roomGrams, roomText(previous), room.getId());
+        }
+        addGrams(roomGrams, roomText(entry), room.getId());
+        if (previous == null || (previous.type() == entry.type()
+                && normalize(previous.location()).equals(normalize(entry.location())))) {
+            return;
+        }
+        // 类型或位置变化，座位重新分桶
+        for (Long seatId : seatsByRoom.getOrDefault(room.getId(), Set.of())) {
+            SeatEntry seat = seats.get(seatId);
+            unindex(seat, previous);
+            index(seat, entry);
+        }
+    }
+
+    private void putSeatLocked(Seat seat) {
+        if (seat.getId() == null || seat.getRoom() == null || seat.getRoom().getId() == null) {
+            return;
+        }
+        Long roomId = seat.getRoom().getId();
+        if (!rooms.containsKey(roomId)) {
+            putRoomLocked(seat.getRoom());
+        }
+        SeatEntry entry = new SeatEntry(seat.getId(), seat.getSeatName(), seat.getSeatNumber(), seat.isHasSocket(),
+                seat.getStatus() != Seat.SeatStatus.UNAVAILABLE, roomId);
+        SeatEntry previous = seats.put(seat.getId(), entry);
+        if (previous != null) {
+            unindex(previous);
+            removeGrams(seatGrams, seatText(previous), seat.getId());
+            Set<Long> seatIds = seatsByRoom.get(previous.roomId());
+            if (seatIds != null) {
+                seatIds.remove(seat.getId());
+            }
+        }
+        seatsByRoom.computeIfAbsent(roomId, k -> new HashSet<>()).add(seat.getId());
+        index(entry, rooms.get(roomId));
+        addGrams(seatGrams, seatText(entry), seat.getId());
+    }
+
+    // 不超过 3 个字符的查询本身就是一个 n-gram；更长的查询取各 trigram 倒排的交集，由调用方校验子串
+    private static Set<Long> lookup(Map<String, Set<Long>> postings, String text) {
+        if (text.length() <= GRAM) {
+            return postings.getOrDefault(text, Set.of());
+        }
+        List<Set<Long>> lists = new ArrayList<>();
+        for (String gram : grams(text, GRAM, GRAM)) {
+            Set<Long> ids = postings.get(gram);
+            if (ids == null) {
+                return Set.of();
+            }
+            lists.add(ids);
+        }
+        lists.sort(Comparator.comparingInt(Set::size));
+        Set<Long> result = new HashSet<>(lists.get(0));
+        for (int i = 1; i < lists.size() && !result.isEmpty(); i++) {
+            result.retainAll(lists.get(i));
+        }
+        return result;
+    }
+
+    private static void addGrams(Map<String, Set<Long>> postings, Collection<String> texts, Long id) {
+        for (String text : texts) {
+            for (String gram : grams(text, 1, GRAM)) {
+                postings.computeIfAbsent(gram, k -> new HashSet<>()).add(id);
+            }
+        }
+    }
+
+    private static void removeGrams(Map<String, Set<Long>> postings, Collection<String> texts, Long id) {
+        for (String text : texts) {
+            for (String gram : grams(text, 1, GRAM)) {
+                Set<Long> ids = postings.get(gram);
+                if (ids != null && ids.remove(id) && ids.isEmpty()) {
+                    postings.remove(gram);
+                }
+            }
+        }
+    }
+
+    private static Set<String> grams(String text, int minLength, int maxLength) {
+        Set<String> grams = new HashSet<>();
+        for (int length = minLength; length <= maxLength; length++) {
+            for (int i = 0; i + length <= text.length(); i++) {
+                grams.add(text.substring(i, i + length));
+            }
+        }
+        return grams;
+    }
+
+    // 完全相同 3 分、前缀 2 分、包含 1 分，再按字段权重区分
+    private static int score(String field, String text, int weight) {
+        String value = normalize(field);
+        if (value.equals(text)) {
+            return 30 + weight;
+        }
+        if (value.startsWith(text)) {
+            return 20 + weight;
+        }
+        return value.contains(text) ? 10 + weight : 0;
+    }
+
+    private static List<String> roomText(RoomEntry room) {
+        return room == null ? List.of() : List.of(normalize(room.name()), normalize(room.location()));
+    }
+
+    private static List<String> seatText(SeatEntry seat) {
+        return seat == null ? List.of() : List.of(normalize(seat.seatNumber()), normalize(seat.seatName()));
+    }
+
+    private void index(SeatEntry seat, RoomEntry room) {
+        byAttributes.computeIfAbsent(new AttributeKey(room.type(), seat.hasSocket()), k -> new HashMap<>())
+                .computeIfAbsent(normalize(room.location()), k -> new TreeSet<>(BY_ROOM_AND_SEAT))
+                .add(seat);
+    }
+
+    private void unindex(SeatEntry seat) {
+        if (seat != null) {
+            unindex(seat, rooms.get(seat.roomId()));
+        }
+    }
+
+    private void unindex(SeatEntry seat, RoomEntry room) {
+        if (room == null) {
+            return;
+        }
+        AttributeKey key = new AttributeKey(room.type(), seat.hasSocket());
+        Map<String, NavigableSet<SeatEntry>> byLocation = byAttributes.get(key);
+        if (byLocation == null) {
+            return;
+        }
+        String location = normalize(room.location());
+        NavigableSet<SeatEntry> bucket = byLocation.get(location);
+        if (bucket != null) {
+            bucket.remove(seat);
+            if (bucket.isEmpty()) {
+                byLocation.remove(location);
+            }
+        }
+        if (byLocation.isEmpty()) {
+            byAttributes.remove(key);
+        }
+    }
+
+    private static SeatCandidate toCandidate(SeatEntry seat, RoomEntry room) {
+        return new SeatCandidate(seat.seatId(), seat.seatName(), seat.hasSocket(),
+                room.roomId(), room.name(), room.location());
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private record AttributeKey(int type, boolean hasSocket) {
+    }
+
+    private record RoomEntry(Long roomId, String name, int type, String location, boolean open) {
+    }
+
+    private record SeatEntry(Long seatId, String seatName, String seatNumber, boolean hasSocket,
+                             boolean available, Long roomId) {
+    }
+
+    // 归并时某个桶的当前座位及其后续座位
+    private record BucketCursor(SeatEntry head, Iterator<SeatEntry> rest) {
+
+        static void advance(Iterator<SeatEntry> bucket, Queue<BucketCursor> cursors) {
+            if (bucket.hasNext()) {
+                cursors.add(new BucketCursor(bucket.next(), bucket));
+            }
+        }
+    }
+}
@@ -1,23 +1,35 @@
 package com.studyroom.service;
 
 import com.studyroom.dto.BookingRequest;
+import com.studyroom.dto.SeatCandidate;
+import com.studyroom.dto.SeatHold;
 import com.studyroom.dto.SeatRequest;
+import com.studyroom.exception.BookingConflictException;
 import com.studyroom.model.Booking;
 import com.studyroom.model.Room;
 import com.studyroom.model.Seat;
+import com.studyroom.model.SlotClaim;
 import com.studyroom.model.Student;
 import com.studyroom.repository.BookingRepository;
 import com.studyroom.repository.RoomRepository;
 import com.studyroom.repository.SeatRepository;
+import com.studyroom.repository.SlotClaimRepository;
+import com.studyroom.util.BookingSlots;
+import com.studyroom.util.TransactionHooks;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpMethod;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.servlet.resource.NoResourceFoundException;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
+import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
@@ -26,7 +38,21 @@ public class SeatService {
     private final SeatRepository seatRepository;
     private final RoomRepository roomRepository;
     private final BookingRepository bookingRepository;
+    private final BookingIntervalIndex bookingIntervalIndex;
+    private final SlotClaimRepository slotClaimRepository;
+    private final BookingLifecycleScheduler bookingLifecycleScheduler;
+    private final SeatHoldRegistry seatHoldRegistry;
+    private final RoomOccupancyCounters roomOccupancyCounters;
+    private final SeatMapSnapshots seatMapSnapshots;
+    private final SeatSlotBitmaps seatSlotBitmaps;
+    private final SeatSearchIndex seatSearchIndex;
 
+    // 占用时段的预约状态：有预定未签到、已签到、暂离
+    static final List<Integer> ACTIVE_STATUSES = List.of(1, 2, 3);
+
+    static final int MAX_SEARCH_LIMIT = 100;
+
+    @Transactional
     public Seat addSeat(SeatRequest seatRequest) {
         Room room = roomRepository.findById(seatRequest.getRoomId())
                 .orElseThrow(() -> new RuntimeException("Room not found"));
@@ -42,33 +68,166 @@ public class SeatService {
         seat.setSeatNumber(seatRequest.getSeatName());
         seat.setHasSocket(seatRequest.getHasSocket());
 
-        return seatRepository.save(seat);
+        Seat saved = seatRepository.save(seat);
+        Long roomId = room.getId();
+        Seat.SeatStatus status = saved.getStatus();
+        TransactionHooks.afterCommit(() -> {
+            roomOccupancyCounters.transition(roomId, null, status);
+            seatMapSnapshots.roomChanged(roomId);
+            seatSearchIndex.putSeat(saved);
+        });
+        return saved;
     }
 
+    @Transactional
     public void bookSeat(Student student, BookingRequest bookingRequest) throws NoResourceFoundException {
-        Seat seat = seatRepository.findById(bookingRequest.getSeatId())
+        PreparedBooking prepared = prepareBooking(student, bookingRequest);
+        TransactionHooks.afterRollback(() -> abandonBooking(prepared));
+        try {
+            confirmBooking(prepared, writeBooking(prepared));
+        } catch (RuntimeException e) {
+            abandonBooking(prepared);
+            throw e;
+        }
+    }
+
+    /**
+     * 校验座位与学生类型，并在内存索引中占用时段，不写数据库。
+     * 之后必须调用 {@link #confirmBooking} 或 {@link #abandonBooking}。
+     */
+    PreparedBooking prepareBooking(Student student, BookingRequest bookingRequest) throws NoResourceFoundException {
+        BookingTarget target = resolveTarget(student, bookingRequest);
+        Long seatId = target.seatId();
+        Instant startTime = target.startTime();
+        Instant endTime = target.endTime();
+
+        Seat seat = findBookableSeat(student, seatId);
+        checkMaxBookingTime(seat, startTime, endTime);
+
+        // 先在内存索引中占用时段，座位被他人保留或座位、学生时段重叠时直接拒绝，不扫描预约表
+        BookingIntervalIndex.Reservation reservation =
+                seatHoldRegistry.reserve(seat.getId(), student.getId(), startTime, endTime);
+        return new PreparedBooking(student, seat, startTime, endTime, reservation);
+    }
+
+    /**
+     * 确定预约的座位与时段：带保留令牌时以保留为准，否则以请求为准。
+     * 被其他学生保留的时段直接拒绝。只读内存，不读数据库。
+     */
+    BookingTarget resolveTarget(Student student, BookingRequest bookingRequest) {
+        Long seatId;
+        Instant startTime;
+        Instant endTime;
+        if (bookingRequest.getHoldToken() != null) {
+            // 确认保留：座位和时段以保留时为准
+            SeatHold hold = seatHoldRegistry.find(bookingRequest.getHoldToken(), student.getId());
+            if (hold == null) {
+                throw new BookingConflictException("Seat hold has expired");
+            }
+            seatId = hold.getSeatId();
+            startTime = hold.getStartTime();
+            endTime = hold.getEndTime();
+        } else {
+            requireSlot(bookingRequest);
+            seatId = bookingRequest.getSeatId();
+            startTime = Instant.ofEpochMilli(bookingRequest.getStartTime());
+            endTime = Instant.ofEpochMilli(bookingRequest.getEndTime());
+        }
+        seatHoldRegistry.ensureNotHeld(seatId, student.getId(), startTime, endTime);
+        return new BookingTarget(seatId, startTime, endTime);
+    }
+
+    /**
+     * 在确认预约前短时保留座位时段
+     */
+    public SeatHold holdSeat(Student student, BookingRequest bookingRequest) throws NoResourceFoundException {
+        requireSlot(bookingRequest);
+        Instant startTime = Instant.ofEpochMilli(bookingRequest.getStartTime());
+        Instant endTime = Instant.ofEpochMilli(bookingRequest.getEndTime());
+        Seat seat = findBookableSeat(student, bookingRequest.getSeatId());
+        // 确认时同样会校验，超长的时段不允许保留
+        checkMaxBookingTime(seat, startTime, endTime);
+        return seatHoldRegistry.hold(seat.getId(), student.getId(), startTime, endTime);
+    }
+
+    private static void requireSlot(BookingRequest bookingRequest) {
+        if (bookingRequest.getSeatId() == null || bookingRequest.getStartTime() == null
+                || bookingRequest.getEndTime() == null) {
+            throw new IllegalArgumentException("Seat id, start time and end time are required");
+        }
+    }
+
+    private static void checkMaxBookingTime(Seat seat, Instant startTime, Instant endTime) {
+        Integer maxBookingTime = seat.getMaxBookingTime();
+        if (maxBookingTime != null && Duration.between(startTime, endTime).compareTo(Duration.ofMinutes(maxBookingTime)) > 0) {
+            throw new IllegalArgumentException("Booking exceeds the maximum booking time of " + maxBookingTime + " minutes");
+        }
+    }
+
+    public void releaseHold(Student student, String holdToken) throws NoResourceFoundException {
+        if (!seatHoldRegistry.release(holdToken, student.getId())) {
+            throw new NoResourceFoundException(HttpMethod.DELETE, "Seat hold not found");
+        }
+    }
+
+    private Seat findBookableSeat(Student student, Long seatId) throws NoResourceFoundException {
+        Seat seat = seatRepository.findById(seatId)
                 .orElseThrow(() -> new NoResourceFoundException(HttpMethod.POST,"Seat not found"));
         int type = seat.getRoom().getType();
         if(type != 0 && type !=student.getType())
             throw new AccessDeniedException("This room is not open to you");
 
 
-        if (seat.getStatus() != Seat.SeatStatus.AVAILABLE) {
-            throw new RuntimeException("Seat is not available");
+        if (seat.getStatus() == Seat.SeatStatus.UNAVAILABLE) {
+            throw new BookingConflictException("Seat is not available");
         }
+        return seat;
+    }
 
-        seat.setStatus(Seat.SeatStatus.OCCUPIED);
-        seatRepository.save(seat);
+    /**
+     * 写入预约与时段占用，事务由调用方提供
+     */
+    Booking writeBooking(PreparedBooking prepared) {
+        Seat seat = prepared.seat();
+        // 座位有预约即为占用，已占用时条件更新不生效
+        Long roomId = seat.getRoom().getId();
+        if (seatRepository.compareAndSetStatus(seat.getId(), Seat.SeatStatus.AVAILABLE, Seat.SeatStatus.OCCUPIED) == 1) {
+            TransactionHooks.afterCommit(() ->
+                    roomOccupancyCounters.transition(roomId, Seat.SeatStatus.AVAILABLE, Seat.SeatStatus.OCCUPIED));
+        }
+        TransactionHooks.afterCommit(() -> seatMapSnapshots.roomChanged(roomId));
 
         Booking booking = new Booking();
-        booking.setStudent(student);
+        booking.setStudent(prepared.student());
         booking.setSeat(seat);
         booking.setRoom(seat.getRoom());
-        booking.setStartTime(Instant.ofEpochMilli(bookingRequest.getStartTime()));
-        booking.setEndTime(Instant.ofEpochMilli(bookingRequest.getEndTime()));
+        booking.setStartTime(prepared.startTime());
+        booking.setEndTime(prepared.endTime());
         booking.setStatus(1);
 
         bookingRepository.save(booking);
+        claimSlots(booking);
+        return booking;
+    }
+
+    /**
+     * 预约已写入，索引中的时段关联预约主键，提交后安排未签到超时并释放学生对该座位的保留
+     */
+    void confirmBooking(PreparedBooking prepared, Booking booking) {
+        bookingIntervalIndex.confirm(prepared.reservation(), booking.getId());
+        TransactionHooks.afterCommit(() -> {
+            seatSlotBitmaps.occupy(prepared.seat().getRoom().getId(), prepared.seat().getId(),
+                    booking.getStartTime(), booking.getEndTime());
+            bookingLifecycleScheduler.schedule(booking);
+            seatHoldRegistry.releaseForBooking(prepared.student().getId(), prepared.seat().getId());
+        });
+    }
+
+    /**
+     * 预约未能写入，释放索引中占用的时段
+     */
+    void abandonBooking(PreparedBooking prepared) {
+        bookingIntervalIndex.cancel(prepared.reservation());
     }
 
     @Transactional
@@ -76,50 +235,46 @@ public class SeatService {
         Booking booking = bookingRepository.findByIdAndStudent(bookingId, student)
                 .orElseThrow(() -> new RuntimeException("Booking not found"));
 
+        boolean active = ACTIVE_STATUSES.contains(booking.getStatus());
         booking.setStatus(0);
         bookingRepository.save(booking);
+        if (active) {
+            releaseInterval(booking);
+        }
     }
 
     @Transactional
     public void temporaryLeaveSeat(Student student, Long seatId) {
-        List<Booking> activeBookings = getLatestBookingForSeat(student, seatId);
-        if (activeBookings.isEmpty()) {
-            throw new RuntimeException("Student has not booked this seat");
-        }
-        Booking booking = activeBookings.get(0);
+        Booking booking = findActiveBooking(student, seatId)
+                .orElseThrow(() -> new RuntimeException("Student has not booked this seat"));
         booking.setStatus(3);
+        booking.setLeaveTime(Instant.now());
         bookingRepository.save(booking);
+        TransactionHooks.afterCommit(() -> bookingLifecycleScheduler.schedule(booking));
 
     }
 
     @Transactional
     public void checkInSeat(Student student, Long seatId) {
-        List<Booking> activeBookings = getLatestBookingForSeat(student, seatId);
-        if (activeBookings.isEmpty()) {
-            throw new RuntimeException("Student has not booked this seat");
-        }
-        Booking booking = activeBookings.get(0);
+        Booking booking = findActiveBooking(student, seatId)
+                .orElseThrow(() -> new RuntimeException("Student has not booked this seat"));
         booking.setStatus(2);
         bookingRepository.save(booking);
+        TransactionHooks.afterCommit(() -> bookingLifecycleScheduler.schedule(booking));
 
     }
 
     @Transactional
     public void releaseSeat(Student student, Long seatId) {
-        Seat seat = seatRepository.findById(seatId)
+        seatRepository.findById(seatId)
                 .orElseThrow(() -> new RuntimeException("Seat not found"));
 
-        List<Booking> activeBookings = getLatestBookingForSeat(student, seatId);
-        if (activeBookings.isEmpty()) {
-            throw new RuntimeException("Student has not booked this seat");
-        }
-
-        Booking booking = activeBookings.get(0);
+        Booking booking = findActiveBooking(student, seatId)
+                .orElseThrow(() -> new RuntimeException("Student has not booked this seat"));
         booking.setStatus(4);
         bookingRepository.save(booking);
 
-        seat.setStatus(Seat.SeatStatus.AVAILABLE);
-        seatRepository.save(seat);
+        releaseInterval(booking);
     }
 
     @Transactional
@@ -128,10 +283,21 @@ public class SeatService {
                 .orElseThrow(() -> new RuntimeException("Seat not found"));
 
         bookingRepository.deleteBySeatId(seatId);
+        slotClaimRepository.deleteBySeatId(seatId);
 
         seatRepository.delete(seat);
+        Long roomId = seat.getRoom().getId();
+        Seat.SeatStatus status = seat.getStatus();
+        TransactionHooks.afterCommit(() -> {
+            bookingIntervalIndex.removeSeat(seatId);
+            seatSlotBitmaps.removeSeat(roomId, seatId);
+            seatSearchIndex.removeSeat(seatId);
+            roomOccupancyCounters.transition(roomId, status, null);
+            seatMapSnapshots.roomChanged(roomId);
+        });
     }
 
+    @Transactional
     public Seat updateSeat(Long seatId, SeatRequest seatRequest) {
         Seat seat = seatRepository.findById(seatId)
                 .orElseThrow(() -> new RuntimeException("Seat not found"));
@@ -140,26 +306,137 @@ public class SeatService {
             seat.setSeatName(seatRequest.getSeatName());
         if (seatRequest.getHasSocket()!=null)
             seat.setHasSocket(seatRequest.getHasSocket());
+        Seat.SeatStatus previous = seat.getStatus();
         if (seatRequest.getStatus()!=null)
             seat.setStatus(seatRequest.getStatus());
 
-        return seatRepository.save(seat);
+        Seat saved = seatRepository.save(seat);
+        Long roomId = seat.getRoom().getId();
+        Seat.SeatStatus status = saved.getStatus();
+        TransactionHooks.afterCommit(() -> {
+            roomOccupancyCounters.transition(roomId, previous, status);
+            seatMapSnapshots.roomChanged(roomId);
+            seatSearchIndex.putSeat(saved);
+        });
+        return saved;
     }
 
     public List<Seat> getSeats(Long roomId){
         return seatRepository.findByRoomId(roomId);
     }
 
-    private List<Booking> getLatestBookingForSeat(Student student, Long seatId) {
-        return bookingRepository.findByStudentOrderByStartTimeDesc(student).stream()
-                .filter(booking -> booking.getSeat().getId().equals(seatId))
+    /**
+     * 自习室内在 [startTime, endTime) 全程空闲的座位。座位来自内存二级索引，空闲与否由时段位图判断，不查询座位表和预约表
+     */
+    public List<SeatCandidate> findFreeSeats(Long roomId, Instant startTime, Instant endTime) {
+        SeatSlotBitmaps.Window window = seatSlotBitmaps.window(startTime, endTime);
+        return seatSearchIndex.seatsOf(roomId).stream()
+                .filter(seat -> seatSlotBitmaps.isFree(roomId, seat.getSeatId(), window))
+                .toList();
+    }
+
+    /**
+     * 跨自习室查找在 [startTime, endTime) 全程空闲的座位。候选座位来自内存二级索引，
+     * 空闲与否由时段位图判断，不扫描座位表和预约表。
+     *
+     * @param type 自习室类型，为空时查找学生可进入的全部类型
+     */
+    public List<SeatCandidate> searchFreeSeats(Student student, Integer type, boolean socketRequired, String location,
+                                               Instant startTime, Instant endTime, int limit) {
+        if (limit <= 0 || limit > MAX_SEARCH_LIMIT) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_SEARCH_LIMIT);
+        }
+        List<Integer> types;
+        if (type != null) {
+            if (type != 0 && !type.equals(student.getType()))
+                throw new AccessDeniedException("This room is not open to you");
+            types = List.of(type);
+        } else {
+            types = student.getType() == null || student.getType() == 0 ? List.of(0) : List.of(0, student.getType());
+        }
+        SeatSlotBitmaps.Window window = seatSlotBitmaps.window(startTime, endTime);
+        return seatSearchIndex.search(types, socketRequired, location,
+                candidate -> seatSlotBitmaps.isFree(candidate.getRoomId(), candidate.getSeatId(), window), limit);
+    }
+
+    /**
+     * 启动时用数据库中的有效预约重建时段索引与时段位图
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadBookingIntervals() {
+        List<Booking> bookings = bookingRepository.findByStatusIn(ACTIVE_STATUSES);
+        bookingIntervalIndex.load(bookings);
+        seatSlotBitmaps.load(bookings);
+    }
+
+    /**
+     * 为预约覆盖的每个时段插入占用记录。内存索引只在本实例内有效，
+     * 多实例部署时由 (seat_id, slot_start) 主键在插入时拒绝重叠的预约。
+     */
+    private void claimSlots(Booking booking) {
+        Long seatId = booking.getSeat().getId();
+        List<SlotClaim> claims = BookingSlots.slotStarts(booking.getStartTime(), booking.getEndTime()).stream()
+                .map(slotStart -> new SlotClaim(seatId, slotStart, booking.getId()))
                 .toList();
+        try {
+            slotClaimRepository.saveAllAndFlush(claims);
+        } catch (DataIntegrityViolationException e) {
+            throw new BookingConflictException("Seat is already booked for this time");
+        }
+    }
+
+    /**
+     * 预约结束或取消：批量删除时段占用，座位上没有其他有效预约时恢复为空闲，提交后释放索引中的时段
+     */
+    private void releaseInterval(Booking booking) {
+        Long seatId = booking.getSeat().getId();
+        slotClaimRepository.deleteByBookingId(booking.getId());
+        Long roomId = booking.getSeat().getRoom().getId();
+        if (!bookingIntervalIndex.hasOtherBookings(seatId, booking.getId())
+                && seatRepository.compareAndSetStatus(seatId, Seat.SeatStatus.OCCUPIED, Seat.SeatStatus.AVAILABLE) == 1) {
+            TransactionHooks.afterCommit(() ->
+                    roomOccupancyCounters.transition(roomId, Seat.SeatStatus.OCCUPIED, Seat.SeatStatus.AVAILABLE));
+        }
+        TransactionHooks.afterCommit(() -> {
+            bookingIntervalIndex.remove(booking.getId());
+            seatSlotBitmaps.release(roomId, seatId, booking.getStartTime(), booking.getEndTime());
+            seatMapSnapshots.roomChanged(roomId);
+        });
+    }
+
+    /**
+     * 学生在该座位上最早的一条有效预约。先按内存索引中的主键加载，
+     * 索引中没有（例如由其他实例创建）时走 (student_id, seat_id, status) 组合索引查询一行。
+     */
+    private Optional<Booking> findActiveBooking(Student student, Long seatId) {
+        Long bookingId = bookingIntervalIndex.findBooking(student.getId(), seatId);
+        if (bookingId != null) {
+            Optional<Booking> booking = bookingRepository.findById(bookingId)
+                    .filter(b -> ACTIVE_STATUSES.contains(b.getStatus()));
+            if (booking.isPresent()) {
+                return booking;
+            }
+        }
+        return bookingRepository.findFirstByStudentIdAndSeatIdAndStatusInOrderByStartTimeAsc(
+                student.getId(), seatId, ACTIVE_STATUSES);
     }
 
     private void validateStudentBooking(Student student, Long seatId) {
-        List<Booking> activeBookings = getLatestBookingForSeat(student, seatId);
-        if (activeBookings.isEmpty()) {
+        if (findActiveBooking(student, seatId).isEmpty()) {
             throw new RuntimeException("Student has not booked this seat");
         }
     }
+
+    /**
+     * 预约的座位与时段，尚未读取座位
+     */
+    record BookingTarget(Long seatId, Instant startTime, Instant endTime) {
+    }
+
+    /**
+     * 已通过校验、占用了索引时段但尚未写入的预约
+     */
+    record PreparedBooking(Student student, Seat seat, Instant startTime, Instant endTime,
+                           BookingIntervalIndex.Reservation reservation) {
+    }
 }
\ No newline at end of file
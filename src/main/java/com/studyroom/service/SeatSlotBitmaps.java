@@ -0,0 +1,239 @@
+package com.studyroom.service;
+
+import com.studyroom.model.Booking;
+import com.studyroom.util.BookingSlots;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按自习室和日期划分的座位时段位图，粒度与 {@link BookingSlots} 相同（15 分钟）。
+ * 每个座位每天占两个 long，只为有预约的座位分配，没有记录即为全天空闲。
+ * 判断座位在某段时间是否空闲只需与查询掩码按字做与运算，不查询预约表。
+ * 同一座位同一时段只能有一条占用记录，释放预约时直接清除对应的位即可。
+ */
+@Component
+public class SeatSlotBitmaps {
+
+    private static final long SLOT_MILLIS = BookingSlots.SLOT.toMillis();
+    // 一天最多 100 个时段（夏令时切换日），两个 long 足够
+    private static final int WORDS_PER_DAY = 2;
+    private static final Duration MAX_QUERY_WINDOW = Duration.ofDays(31);
+
+    private final ZoneId zone = ZoneId.systemDefault();
+    private final Map<Long, Map<Long, RoomDay>> rooms = new ConcurrentHashMap<>();
+
+    /**
+     * 预约提交后占用其覆盖的时段
+     */
+    public void occupy(Long roomId, Long seatId, Instant startTime, Instant endTime) {
+        forEachDay(startTime, endTime, (epochDay, mask) -> roomDays(roomId)
+                .computeIfAbsent(epochDay, day -> new RoomDay())
+                .set(seatId, mask));
+    }
+
+    /**
+     * 预约取消或结束后释放其覆盖的时段
+     */
+    public void release(Long roomId, Long seatId, Instant startTime, Instant endTime) {
+        Map<Long, RoomDay> days = rooms.get(roomId);
+        if (days == null) {
+            return;
+        }
+        forEachDay(startTime, endTime, (epochDay, mask) -> {
+            RoomDay roomDay = days.get(epochDay);
+            if (roomDay != null) {
+                roomDay.clear(seatId, mask);
+            }
+        });
+    }
+
+    public void removeSeat(Long roomId, Long seatId) {
+        Map<Long, RoomDay> days = rooms.get(roomId);
+        if (days != null) {
+            days.values().forEach(roomDay -> roomDay.remove(seatId));
+        }
+    }
+
+    public void removeRoom(Long roomId) {
+        rooms.remove(roomId);
+    }
+
+    /**
+     * 为 [startTime, endTime) 生成查询掩码，同一窗口可用于多个座位和自习室
+     */
+    public Window window(Instant startTime, Instant endTime) {
+        if (!startTime.isBefore(endTime)) {
+            throw new IllegalArgumentException("End time must be after start time");
+        }
+        if (Duration.between(startTime, endTime).compareTo(MAX_QUERY_WINDOW) > 0) {
+            throw new IllegalArgumentException("Query window must not exceed " + MAX_QUERY_WINDOW.toDays() + " days");
+        }
+        List<Long> epochDays = new ArrayList<>();
+        List<long[]> masks = new ArrayList<>();
+        forEachDay(startTime, endTime, (epochDay, mask) -> {
+            epochDays.add(epochDay);
+            masks.add(mask);
+        });
+        return new Window(epochDays.stream().mapToLong(Long::longValue).toArray(), masks.toArray(long[][]::new));
+    }
+
+    /**
+     * 座位在窗口内是否没有任何被占用的时段
+     */
+    public boolean isFree(Long roomId, Long seatId, Window window) {
+        Map<Long, RoomDay> days = rooms.get(roomId);
+        if (days == null) {
+            return true;
+        }
+        for (int i = 0; i < window.epochDays.length; i++) {
+            RoomDay roomDay = days.get(window.epochDays[i]);
+            if (roomDay != null && roomDay.intersects(seatId, window.masks[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 用数据库中的有效预约重建位图，启动时调用
+     */
+    public void load(Collection<Booking> bookings) {
+        rooms.clear();
+        for (Booking booking : bookings) {
+            if (booking.getSeat() == null || booking.getSeat().getRoom() == null
+                    || booking.getStartTime() == null || booking.getEndTime() == null) {
+                continue;
+            }
+            occupy(booking.getSeat().getRoom().getId(), booking.getSeat().getId(),
+                    booking.getStartTime(), booking.getEndTime());
+        }
+    }
+
+    /**
+     * 丢弃今天以前的位图，内存中只保留当前及以后的日期
+     */
+    @Scheduled(fixedDelayString = "${booking.slot-bitmaps.purge-interval:PT1H}")
+    public void purgePastDays() {
+        long today = LocalDate.now(zone).toEpochDay();
+        rooms.values().forEach(days -> days.keySet().removeIf(epochDay -> epochDay < today));
+    }
+
+    /**
+     * 有占用记录的座位天数，用于估算内存
+     */
+    public int size() {
+        return rooms.values().stream()
+                .flatMap(days -> days.values().stream())
+                .mapToInt(RoomDay::size)
+                .sum();
+    }
+
+    private Map<Long, RoomDay> roomDays(Long roomId) {
+        return rooms.computeIfAbsent(roomId, k -> new ConcurrentHashMap<>());
+    }
+
+    // 把按时段对齐后的 [startTime, endTime) 按自然日切开，给出每天对应的位掩码
+    private void forEachDay(Instant startTime, Instant endTime, DayMask action) {
+        long start = BookingSlots.floor(startTime).toEpochMilli();
+        long end = BookingSlots.ceil(endTime).toEpochMilli();
+        LocalDate day = Instant.ofEpochMilli(start).atZone(zone).toLocalDate();
+        while (start < end) {
+            long dayStart = day.atStartOfDay(zone).toInstant().toEpochMilli();
+            long dayEnd = day.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+            int fromSlot = (int) ((start - dayStart) / SLOT_MILLIS);
+            int toSlot = (int) ((Math.min(end, dayEnd) - dayStart + SLOT_MILLIS - 1) / SLOT_MILLIS);
+            action.accept(day.toEpochDay(), rangeMask(fromSlot, toSlot));
+            start = dayEnd;
+            day = day.plusDays(1);
+        }
+    }
+
+    private static long[] rangeMask(int fromSlot, int toSlot) {
+        long[] mask = new long[WORDS_PER_DAY];
+        for (int word = 0; word < WORDS_PER_DAY; word++) {
+            int lo = Math.max(fromSlot, word * Long.SIZE);
+            int hi = Math.min(toSlot, (word + 1) * Long.SIZE);
+            if (lo < hi) {
+                int width = hi - lo;
+                long bits = width == Long.SIZE ? -1L : (1L << width) - 1;
+                mask[word] = bits << (lo - word * Long.SIZE);
+            }
+        }
+        return mask;
+    }
+
+    @FunctionalInterface
+    private interface DayMask {
+        void accept(long epochDay, long[] mask);
+    }
+
+    /**
+     * 一个自习室一天的位图，只记录有预约的座位
+     */
+    private static final class RoomDay {
+        private final Map<Long, long[]> seats = new HashMap<>();
+
+        synchronized void set(Long seatId, long[] mask) {
+            long[] words = seats.computeIfAbsent(seatId, k -> new long[WORDS_PER_DAY]);
+            for (int i = 0; i < WORDS_PER_DAY; i++) {
+                words[i] |= mask[i];
+            }
+        }
+
+        synchronized void clear(Long seatId, long[] mask) {
+            long[] words = seats.get(seatId);
+            if (words == null) {
+                return;
+            }
+            long remaining = 0;
+            for (int i = 0; i < WORDS_PER_DAY; i++) {
+                words[i] &= ~mask[i];
+                remaining |= words[i];
+            }
+            if (remaining == 0) {
+                seats.remove(seatId);
+            }
+        }
+
+        synchronized boolean intersects(Long seatId, long[] mask) {
+            long[] words = seats.get(seatId);
+            if (words == null) {
+                return false;
+            }
+            for (int i = 0; i < WORDS_PER_DAY; i++) {
+                if ((words[i] & mask[i]) != 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        synchronized void remove(Long seatId) {
+            seats.remove(seatId);
+        }
+
+        synchronized int size() {
+            return seats.size();
+        }
+    }
+
+    /**
+     * 查询窗口按天切分后的位掩码
+     */
+    public static final class Window {
+        private final long[] epochDays;
+        private final long[][] masks;
+
+        private Window(long[] epochDays, long[][] masks) {
+            this.epochDays = epochDays;
+            this.masks = masks;
+        }
+    }
+}
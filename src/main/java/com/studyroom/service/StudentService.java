@@ -2,10 +2,9 @@ package com.studyroom.service;
 
 import com.studyroom.model.Student;
 import com.studyroom.repository.StudentRepository;
+import com.studyroom.util.AuthenticatedUser;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
-import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -13,7 +12,6 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Component;
 import org.springframework.stereotype.Service;
 
-import java.util.Collections;
 import java.util.List;
 
 @Component
@@ -22,6 +20,7 @@ public class StudentService implements UserDetailsService {
 
     private final StudentRepository studentRepository;
     private final PasswordEncoder passwordEncoder;
+    private final UserDetailsCache userDetailsCache;
 
     @PostConstruct
     public void init() {
@@ -36,6 +35,7 @@ public class StudentService implements UserDetailsService {
             student.setPhone("1234568910");
             student.setType(1);
             studentRepository.save(student);
+            userDetailsCache.evict(student.getUsername());
         }
     }
 
@@ -44,11 +44,7 @@ public class StudentService implements UserDetailsService {
         Student student = studentRepository.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("Student not found"));
 
-        return new User(
-                student.getUsername(),
-                student.getPassword(),
-                Collections.singletonList(new SimpleGrantedAuthority("ROLE_STUDENT"))
-        );
+        return AuthenticatedUser.of(student);
     }
 
     public void register(Student student) {
@@ -56,10 +52,22 @@ public class StudentService implements UserDetailsService {
         if (studentRepository.findByUsername(student.getUsername()).isEmpty()) {
             student.setPassword(passwordEncoder.encode(student.getPassword()));
             studentRepository.save(student);
+            userDetailsCache.evict(student.getUsername());
         }else
             throw new UsernameNotFoundException("Student already exists");
     }
 
+    /**
+     * 保存重新哈希后的密码
+     */
+    public UserDetails updatePassword(String username, String encodedPassword) {
+        Student student = findByUsername(username);
+        student.setPassword(encodedPassword);
+        studentRepository.save(student);
+        userDetailsCache.evict(username);
+        return AuthenticatedUser.of(student);
+    }
+
     public Student findByUsername(String username) {
         return studentRepository.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("Student not found"));
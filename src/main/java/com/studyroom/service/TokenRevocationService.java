@@ -0,0 +1,94 @@
+package com.studyroom.service;
+
+import com.studyroom.model.RevokedToken;
+import com.studyroom.repository.RevokedTokenRepository;
+import com.studyroom.util.BloomFilter;
+import com.studyroom.util.TransactionHooks;
+import io.jsonwebtoken.Claims;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 基于 jti 的 token 注销。
+ * 请求路径上先查布隆过滤器，绝大多数未注销的 token 在这里就返回；
+ * 命中时再用精确集合确认。注销记录持久化到数据库，启动时重新加载，token 过期后清理。
+ */
+@Service
+public class TokenRevocationService {
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final int expectedTokens;
+    private final double falsePositiveRate;
+
+    // jti -> token 过期时间（毫秒）
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+    private volatile BloomFilter bloomFilter;
+
+    public TokenRevocationService(RevokedTokenRepository revokedTokenRepository,
+                                  @Value("${security.revocation.expected-tokens:100000}") int expectedTokens,
+                                  @Value("${security.revocation.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.expectedTokens = expectedTokens;
+        this.falsePositiveRate = falsePositiveRate;
+        this.bloomFilter = new BloomFilter(expectedTokens, falsePositiveRate);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        for (RevokedToken token : revokedTokenRepository.findByExpiresAtAfter(Instant.now())) {
+            remember(token.getJti(), token.getExpiresAt().toEpochMilli());
+        }
+    }
+
+    public boolean isRevoked(String jti) {
+        if (jti == null || !bloomFilter.mightContain(jti)) {
+            return false;
+        }
+        Long expiresAt = revoked.get(jti);
+        return expiresAt != null && expiresAt > System.currentTimeMillis();
+    }
+
+    /**
+     * 注销 token，直到其原本的过期时间为止都会被拒绝。
+     * 内存中的集合与布隆过滤器在事务提交后才更新，回滚时不会留下数据库里没有的注销记录
+     */
+    @Transactional
+    public void revoke(Claims claims) {
+        if (claims.getId() == null) {
+            throw new IllegalArgumentException("Token cannot be revoked");
+        }
+        Instant expiresAt = claims.getExpiration().toInstant();
+        revokedTokenRepository.save(new RevokedToken(claims.getId(), expiresAt));
+        TransactionHooks.afterCommit(() -> remember(claims.getId(), expiresAt.toEpochMilli()));
+    }
+
+    /**
+     * 清理已过期的注销记录。布隆过滤器无法删除元素，这里用剩余记录重建一份
+     */
+    @Scheduled(fixedDelayString = "${security.revocation.purge-interval:PT10M}")
+    @Transactional
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        revokedTokenRepository.deleteExpired(Instant.ofEpochMilli(now));
+        revoked.values().removeIf(expiresAt -> expiresAt <= now);
+
+        BloomFilter rebuilt = new BloomFilter(Math.max(expectedTokens, revoked.size()), falsePositiveRate);
+        revoked.keySet().forEach(rebuilt::put);
+        bloomFilter = rebuilt;
+        // 重建期间新注销的 token 可能只写进了旧过滤器，再补一次
+        revoked.keySet().forEach(rebuilt::put);
+    }
+
+    private void remember(String jti, long expiresAt) {
+        revoked.put(jti, expiresAt);
+        bloomFilter.put(jti);
+    }
+}
@@ -0,0 +1,74 @@
+package com.studyroom.service;
+
+import com.studyroom.util.AuthenticatedUser;
+import com.studyroom.util.ExpiringCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * 已认证用户的进程内缓存，避免每个带 token 的请求都查询数据库。
+ * 学生或管理员信息变化时需要调用 {@link #evict(String)}。
+ */
+@Component
+public class UserDetailsCache implements MeterBinder {
+
+    private final ExpiringCache<String, UserDetails> cache;
+    private final long ttlMillis;
+
+    public UserDetailsCache(@Value("${security.principal-cache.max-size:10000}") int maxSize,
+                            @Value("${security.principal-cache.ttl:10m}") Duration ttl) {
+        this.cache = new ExpiringCache<>(maxSize);
+        this.ttlMillis = ttl.toMillis();
+    }
+
+    /**
+     * 命中时返回缓存值的副本，未命中时调用 loader 加载并写入缓存
+     */
+    public UserDetails get(String username, Supplier<UserDetails> loader) {
+        UserDetails cached = cache.get(username);
+        if (cached == null) {
+            cached = loader.get();
+            cache.put(username, cached, System.currentTimeMillis() + ttlMillis);
+        }
+        // 认证成功后 ProviderManager 会擦除凭证，返回副本以免改动缓存中的对象
+        if (cached instanceof AuthenticatedUser user) {
+            return user.copy();
+        }
+        return User.withUserDetails(cached).build();
+    }
+
+    public void evict(String username) {
+        cache.invalidate(username);
+    }
+
+    public void evictAll() {
+        cache.invalidateAll();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("studyroom.principal.cache.requests", cache, ExpiringCache::hitCount)
+                .tag("result", "hit")
+                .description("Principal lookups served from the cache")
+                .register(registry);
+        FunctionCounter.builder("studyroom.principal.cache.requests", cache, ExpiringCache::missCount)
+                .tag("result", "miss")
+                .description("Principal lookups that went to the database")
+                .register(registry);
+        FunctionCounter.builder("studyroom.principal.cache.evictions", cache, ExpiringCache::evictionCount)
+                .description("Principals evicted because the cache was full")
+                .register(registry);
+        Gauge.builder("studyroom.principal.cache.size", cache, ExpiringCache::size)
+                .description("Principals currently cached")
+                .register(registry);
+    }
+}
@@ -0,0 +1,49 @@
+package com.studyroom.util;
+
+import com.studyroom.model.Admin;
+import com.studyroom.model.Student;
+import lombok.Getter;
+import org.springframework.security.core.userdetails.User;
+
+/**
+ * 带有主键和主体类型的登录用户。
+ * 既可以从数据库加载，也可以直接由 token 中的 claims 构建（此时没有密码）。
+ */
+@Getter
+public class AuthenticatedUser extends User {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Long id;
+    private final PrincipalType type;
+    // 学生类型，管理员为 null
+    private final Integer studentType;
+
+    public AuthenticatedUser(Long id, PrincipalType type, Integer studentType, String username, String password) {
+        super(username, password, type.getAuthorities());
+        this.id = id;
+        this.type = type;
+        this.studentType = studentType;
+    }
+
+    public static AuthenticatedUser of(Student student) {
+        return new AuthenticatedUser(student.getId(), PrincipalType.STUDENT, student.getType(),
+                student.getUsername(), student.getPassword());
+    }
+
+    public static AuthenticatedUser of(Admin admin) {
+        return new AuthenticatedUser(admin.getId(), PrincipalType.ADMIN, null,
+                admin.getUsername(), admin.getPassword());
+    }
+
+    /**
+     * 复制一份，密码被擦除时不影响原对象
+     */
+    public AuthenticatedUser copy() {
+        return new AuthenticatedUser(id, type, studentType, getUsername(), getPassword() == null ? "" : getPassword());
+    }
+
+    public boolean isStudent() {
+        return type == PrincipalType.STUDENT;
+    }
+}
@@ -0,0 +1,46 @@
+package com.studyroom.util;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 预约时段按固定粒度切分，占用表与可用性统计共用同一套对齐规则。
+ */
+public final class BookingSlots {
+
+    // 时段粒度：15 分钟
+    public static final Duration SLOT = Duration.ofMinutes(15);
+
+    private static final long SLOT_MILLIS = SLOT.toMillis();
+
+    private BookingSlots() {
+    }
+
+    /**
+     * 向下对齐到时段起点
+     */
+    public static Instant floor(Instant time) {
+        return Instant.ofEpochMilli(Math.floorDiv(time.toEpochMilli(), SLOT_MILLIS) * SLOT_MILLIS);
+    }
+
+    /**
+     * 向上对齐到时段起点
+     */
+    public static Instant ceil(Instant time) {
+        return Instant.ofEpochMilli(-Math.floorDiv(-time.toEpochMilli(), SLOT_MILLIS) * SLOT_MILLIS);
+    }
+
+    /**
+     * [startTime, endTime) 覆盖的所有时段起点
+     */
+    public static List<Instant> slotStarts(Instant startTime, Instant endTime) {
+        List<Instant> slots = new ArrayList<>();
+        long end = ceil(endTime).toEpochMilli();
+        for (long slot = floor(startTime).toEpochMilli(); slot < end; slot += SLOT_MILLIS) {
+            slots.add(Instant.ofEpochMilli(slot));
+        }
+        return slots;
+    }
+}
@@ -0,0 +1,110 @@
+package com.studyroom.util;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.studyroom.exception.ApiError;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 统一输出错误响应。固定内容的 401/403/过期等响应体在启动时序列化一次，
+ * 之后直接写出字节；动态消息使用 JacksonConfig 中配置的 ObjectMapper。
+ */
+@Component
+public class ErrorResponseWriter {
+
+    private static final String CONTENT_TYPE = "application/json;charset=UTF-8";
+
+    private final ObjectMapper objectMapper;
+
+    private final byte[] unauthorized;
+    private final byte[] forbidden;
+    private final byte[] expiredToken;
+    private final byte[] revokedToken;
+    private final byte[] internalError;
+    private final byte[] tokenExpired;
+    private final byte[] unreadableRequest;
+
+    public ErrorResponseWriter(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.unauthorized = encode(result(401, "请先登录"));
+        this.forbidden = encode(result(403, "没有权限访问该资源"));
+        this.expiredToken = encode(Map.of("error", "Expired Login Token"));
+        this.revokedToken = encode(Map.of("error", "Revoked Login Token"));
+        this.internalError = encode(new ApiError("Internal server error"));
+        this.tokenExpired = encode(new ApiError("Token expired"));
+        this.unreadableRequest = encode(new ApiError("Request parameters are unrecognized"));
+    }
+
+    public void writeUnauthorized(HttpServletResponse response) throws IOException {
+        write(response, HttpServletResponse.SC_UNAUTHORIZED, unauthorized);
+    }
+
+    public void writeForbidden(HttpServletResponse response) throws IOException {
+        write(response, HttpServletResponse.SC_FORBIDDEN, forbidden);
+    }
+
+    public void writeExpiredToken(HttpServletResponse response) throws IOException {
+        write(response, HttpServletResponse.SC_UNAUTHORIZED, expiredToken);
+    }
+
+    public void writeRevokedToken(HttpServletResponse response) throws IOException {
+        write(response, HttpServletResponse.SC_UNAUTHORIZED, revokedToken);
+    }
+
+    /**
+     * 输出动态内容的错误响应
+     */
+    public void write(HttpServletResponse response, int status, Object body) throws IOException {
+        write(response, status, objectMapper.writeValueAsBytes(body));
+    }
+
+    public ResponseEntity<byte[]> internalError() {
+        return entity(HttpStatus.INTERNAL_SERVER_ERROR, internalError);
+    }
+
+    public ResponseEntity<byte[]> tokenExpired() {
+        return entity(HttpStatus.UNAUTHORIZED, tokenExpired);
+    }
+
+    public ResponseEntity<byte[]> unreadableRequest() {
+        return entity(HttpStatus.BAD_REQUEST, unreadableRequest);
+    }
+
+    private static ResponseEntity<byte[]> entity(HttpStatus status, byte[] body) {
+        return ResponseEntity.status(status)
+                .contentType(MediaType.APPLICATION_JSON)
+                .contentLength(body.length)
+                .body(body);
+    }
+
+    private static void write(HttpServletResponse response, int status, byte[] body) throws IOException {
+        response.setStatus(status);
+        response.setContentType(CONTENT_TYPE);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    private static Map<String, Object> result(int code, String message) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("code", code);
+        data.put("message", message);
+        data.put("data", null);
+        return data;
+    }
+
+    private byte[] encode(Object body) {
+        try {
+            return objectMapper.writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
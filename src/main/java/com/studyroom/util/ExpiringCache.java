@@ -0,0 +1,156 @@
+package com.studyroom.util;
+
+import java.time.Clock;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * 进程内的有界缓存，每个条目带有自己的过期时间。
+ * 超过容量时先清理已过期条目，仍然超出则按迭代顺序淘汰一部分可淘汰的条目；
+ * 不可淘汰的条目只会过期或被显式移除，全部条目都不可淘汰时新条目不会写入。
+ */
+public class ExpiringCache<K, V> {
+
+    private final ConcurrentHashMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final int maximumSize;
+    private final Clock clock;
+    private final Predicate<? super V> evictable;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public ExpiringCache(int maximumSize) {
+        this(maximumSize, Clock.systemUTC(), value -> true);
+    }
+
+    public ExpiringCache(int maximumSize, Clock clock) {
+        this(maximumSize, clock, value -> true);
+    }
+
+    /**
+     * @param evictable 容量不足时哪些未过期的值可以被淘汰
+     */
+    public ExpiringCache(int maximumSize, Predicate<? super V> evictable) {
+        this(maximumSize, Clock.systemUTC(), evictable);
+    }
+
+    public ExpiringCache(int maximumSize, Clock clock, Predicate<? super V> evictable) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("maximumSize must be positive");
+        }
+        this.maximumSize = maximumSize;
+        this.clock = clock;
+        this.evictable = evictable;
+    }
+
+    /**
+     * 返回未过期的值，不存在或已过期时返回 null
+     */
+    public V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (entry.expiresAt <= clock.millis()) {
+            entries.remove(key, entry);
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.value;
+    }
+
+    /**
+     * 写入条目，返回是否写入。已过期，或缓存已满且没有可淘汰的条目时不写入
+     */
+    public boolean put(K key, V value, long expiresAtMillis) {
+        if (expiresAtMillis <= clock.millis()) {
+            return false;
+        }
+        if (entries.size() >= maximumSize && !entries.containsKey(key) && !makeRoom()) {
+            return false;
+        }
+        entries.put(key, new Entry<>(value, expiresAtMillis));
+        return true;
+    }
+
+    /**
+     * 仅当 key 不存在（或已过期）时写入，返回当前生效的值。
+     * 缓存已满且没有可淘汰的条目时不写入，返回 null
+     */
+    public V putIfAbsent(K key, V value, long expiresAtMillis) {
+        long now = clock.millis();
+        if (entries.size() >= maximumSize && !entries.containsKey(key) && !makeRoom()) {
+            return null;
+        }
+        Entry<V> fresh = new Entry<>(value, expiresAtMillis);
+        Entry<V> current = entries.compute(key, (k, existing) ->
+                existing == null || existing.expiresAt <= now ? fresh : existing);
+        return current.value;
+    }
+
+    public void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    public void invalidate(K key, V value) {
+        entries.computeIfPresent(key, (k, existing) -> existing.value == value ? null : existing);
+    }
+
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * 清理所有已过期的条目
+     */
+    public void purgeExpired() {
+        long now = clock.millis();
+        entries.entrySet().removeIf(e -> e.getValue().expiresAt <= now);
+    }
+
+    // 返回是否腾出了至少一个位置
+    private boolean makeRoom() {
+        purgeExpired();
+        int excess = entries.size() - maximumSize + 1;
+        if (excess <= 0) {
+            return true;
+        }
+        // 一次多腾出 1/16 的空间，避免缓存满时每次写入都触发淘汰
+        int toEvict = Math.max(excess, maximumSize / 16);
+        Iterator<Map.Entry<K, Entry<V>>> it = entries.entrySet().iterator();
+        while (toEvict > 0 && it.hasNext()) {
+            if (!evictable.test(it.next().getValue().value)) {
+                continue;
+            }
+            it.remove();
+            evictions.increment();
+            toEvict--;
+        }
+        return entries.size() < maximumSize;
+    }
+
+    private record Entry<V>(V value, long expiresAt) {
+    }
+}
@@ -1,18 +1,22 @@
 package com.studyroom.util;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
-import org.springframework.stereotype.Service;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 import java.util.function.Function;
 
 @Component
@@ -21,12 +25,34 @@ public class JwtUtil {
 
     private final long expiration = 86400000; // 24小时
 
+    // 主体类型、主键与学生类型，用于过滤器直接构建登录用户
+    public static final String CLAIM_KIND = "kind";
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_STUDENT_TYPE = "stype";
+
     // 然后在构造函数中初始化
     private final SecretKey key;
 
-    public JwtUtil(@Value("${jwt.secret}") String secret) {
+    // JwtParser 是线程安全的，只构建一次
+    private final JwtParser parser;
+
+    // 已验签的 claims，按 token 摘要缓存，条目在 token 过期时失效
+    private final ExpiringCache<String, Claims> claimsCache;
+
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    public JwtUtil(@Value("${jwt.secret}") String secret,
+                   @Value("${jwt.claims-cache-size:10000}") int claimsCacheSize) {
         byte[] keyBytes = secret.getBytes(StandardCharsets.UTF_8);
         this.key = Keys.hmacShaKeyFor(keyBytes);
+        this.parser = Jwts.parser().verifyWith(key).build();
+        this.claimsCache = new ExpiringCache<>(claimsCacheSize);
     }
 
     public String generateToken(String username) {
@@ -34,19 +60,41 @@ public class JwtUtil {
         return createToken(claims, username);
     }
 
+    /**
+     * 为已认证用户签发 token，带上主体类型和主键
+     */
+    public String generateToken(UserDetails userDetails) {
+        Map<String, Object> claims = new HashMap<>();
+        if (userDetails instanceof AuthenticatedUser user) {
+            claims.put(CLAIM_KIND, user.getType().name());
+            claims.put(CLAIM_USER_ID, user.getId());
+            if (user.getStudentType() != null) {
+                claims.put(CLAIM_STUDENT_TYPE, user.getStudentType());
+            }
+        }
+        return createToken(claims, userDetails.getUsername());
+    }
+
     private String createToken(Map<String, Object> claims, String subject) {
         return Jwts.builder()
-                .setClaims(claims)
-                .setSubject(subject)
-                .setIssuedAt(new Date(System.currentTimeMillis()))
-                .setExpiration(new Date(System.currentTimeMillis() + expiration))
+                .claims(claims)
+                .subject(subject)
+                .id(UUID.randomUUID().toString())
+                .issuedAt(new Date(System.currentTimeMillis()))
+                .expiration(new Date(System.currentTimeMillis() + expiration))
                 .signWith(key)
                 .compact();
     }
 
     public Boolean validateToken(String token, String username) {
-        final String extractedUsername = extractUsername(token);
-        return (extractedUsername.equals(username) && !isTokenExpired(token));
+        return validateToken(extractAllClaims(token), username);
+    }
+
+    /**
+     * 使用已解析的 claims 校验，避免再次验签
+     */
+    public Boolean validateToken(Claims claims, String username) {
+        return username.equals(claims.getSubject()) && !claims.getExpiration().before(new Date());
     }
 
     public String extractUsername(String token) {
@@ -62,11 +110,46 @@ public class JwtUtil {
         return claimsResolver.apply(claims);
     }
 
-    private Claims extractAllClaims(String token) {
-        return Jwts.parser().verifyWith(key).build().parseSignedClaims(token).getPayload();
+    /**
+     * 验签并解析 token。同一个 token 在有效期内只验签一次，
+     * 过期后缓存失效，重新解析时抛出 ExpiredJwtException。
+     */
+    public Claims extractAllClaims(String token) {
+        String digest = digest(token);
+        Claims claims = claimsCache.get(digest);
+        if (claims != null) {
+            return claims;
+        }
+        claims = parser.parseSignedClaims(token).getPayload();
+        if (claims.getExpiration() != null) {
+            claimsCache.put(digest, claims, claims.getExpiration().getTime());
+        }
+        return claims;
+    }
+
+    /**
+     * 根据 claims 直接构建登录用户，不查询数据库。
+     * 旧 token 没有主体类型或主键时返回 null，由调用方回退到按用户名加载。
+     */
+    public AuthenticatedUser toPrincipal(Claims claims) {
+        String kind = claims.get(CLAIM_KIND, String.class);
+        Number id = claims.get(CLAIM_USER_ID, Number.class);
+        if (kind == null || id == null) {
+            return null;
+        }
+        PrincipalType type;
+        try {
+            type = PrincipalType.valueOf(kind);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        Number studentType = claims.get(CLAIM_STUDENT_TYPE, Number.class);
+        return new AuthenticatedUser(id.longValue(), type,
+                studentType == null ? null : studentType.intValue(), claims.getSubject(), "");
     }
 
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    private static String digest(String token) {
+        byte[] hash = SHA256.get().digest(token.getBytes(StandardCharsets.UTF_8));
+        return Base64.getEncoder().encodeToString(hash);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,25 @@
+package com.studyroom.util;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 登录主体的类型，写入 token 的 kind 字段
+ */
+public enum PrincipalType {
+    ADMIN(Collections.emptyList()),
+    STUDENT(Collections.singletonList(new SimpleGrantedAuthority("ROLE_STUDENT")));
+
+    private final List<GrantedAuthority> authorities;
+
+    PrincipalType(List<GrantedAuthority> authorities) {
+        this.authorities = authorities;
+    }
+
+    public List<GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+}
@@ -0,0 +1,117 @@
+package com.studyroom.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 分层时间轮。第 L 层每格跨 wheelSize^L 个 tick，
+ * 高层的格子到期时把其中的任务重新放入低层，最终在第 0 层按 tick 到期。
+ * 添加和推进都只触及到期的格子，与任务总数无关。超出所有层范围的任务放在溢出列表中，
+ * 最高层转完一圈时重新分配。线程安全。
+ */
+public class TimingWheel<T> {
+
+    private final long tickMillis;
+    private final int wheelSize;
+    private final long[] spans;
+    private final List<List<Entry<T>>> buckets;
+    private final List<Entry<T>> overflow = new ArrayList<>();
+    private final List<Entry<T>> expired = new ArrayList<>();
+    private long currentTick;
+    private int size;
+
+    public TimingWheel(long tickMillis, int wheelSize, int levels, long startMillis) {
+        this.tickMillis = tickMillis;
+        this.wheelSize = wheelSize;
+        this.spans = new long[levels + 1];
+        spans[0] = 1;
+        for (int level = 1; level <= levels; level++) {
+            spans[level] = spans[level - 1] * wheelSize;
+        }
+        this.buckets = new ArrayList<>(levels * wheelSize);
+        for (int i = 0; i < levels * wheelSize; i++) {
+            buckets.add(new ArrayList<>());
+        }
+        this.currentTick = startMillis / tickMillis;
+    }
+
+    /**
+     * 添加任务，已经到期的任务在下次 {@link #advance} 时返回
+     */
+    public synchronized void schedule(long deadlineMillis, T item) {
+        place(new Entry<>(Math.floorDiv(deadlineMillis + tickMillis - 1, tickMillis), item));
+        size++;
+    }
+
+    /**
+     * 推进到 nowMillis，返回期间到期的任务
+     */
+    public synchronized List<T> advance(long nowMillis) {
+        List<T> due = new ArrayList<>();
+        for (Entry<T> entry : expired) {
+            due.add(entry.item());
+        }
+        expired.clear();
+
+        long target = nowMillis / tickMillis;
+        while (currentTick < target) {
+            currentTick++;
+            int levels = spans.length - 1;
+            if (currentTick % spans[levels] == 0 && !overflow.isEmpty()) {
+                List<Entry<T>> pending = new ArrayList<>(overflow);
+                overflow.clear();
+                pending.forEach(this::place);
+            }
+            // 从高层到低层依次下放，下放到第 0 层当前格的任务本 tick 到期
+            for (int level = levels - 1; level >= 1; level--) {
+                if (currentTick % spans[level] != 0) {
+                    continue;
+                }
+                List<Entry<T>> bucket = bucket(level, currentTick);
+                if (!bucket.isEmpty()) {
+                    List<Entry<T>> pending = new ArrayList<>(bucket);
+                    bucket.clear();
+                    pending.forEach(this::place);
+                }
+            }
+            List<Entry<T>> bucket = bucket(0, currentTick);
+            for (Entry<T> entry : bucket) {
+                due.add(entry.item());
+            }
+            bucket.clear();
+            for (Entry<T> entry : expired) {
+                due.add(entry.item());
+            }
+            expired.clear();
+        }
+        size -= due.size();
+        return due;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private void place(Entry<T> entry) {
+        long delta = entry.deadlineTick() - currentTick;
+        if (delta <= 0) {
+            expired.add(entry);
+            return;
+        }
+        for (int level = 0; level < spans.length - 1; level++) {
+            if (delta < spans[level + 1]) {
+                bucket(level, entry.deadlineTick()).add(entry);
+                return;
+            }
+        }
+        overflow.add(entry);
+    }
+
+    private List<Entry<T>> bucket(int level, long tick) {
+        int slot = (int) ((tick / spans[level]) % wheelSize);
+        return buckets.get(level * wheelSize + slot);
+    }
+
+    private record Entry<T>(long deadlineTick, T item) {
+    }
+}
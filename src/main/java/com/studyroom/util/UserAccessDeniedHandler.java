@@ -1,34 +1,23 @@
 package com.studyroom.util;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.web.access.AccessDeniedHandler;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
 
 @Component
+@RequiredArgsConstructor
 public class UserAccessDeniedHandler implements AccessDeniedHandler {
 
+    private final ErrorResponseWriter errorResponseWriter;
+
     @Override
     public void handle(HttpServletRequest request, HttpServletResponse response,
                        AccessDeniedException accessDeniedException) throws IOException {
-
-        response.setStatus(HttpServletResponse.SC_FORBIDDEN);
-        response.setContentType("application/json;charset=UTF-8");
-
-        Map<String, Object> data = new HashMap<>();
-        data.put("code", 403);
-        data.put("message", "没有权限访问该资源");
-        data.put("data", null);  // 可以添加任何需要的数据
-
-        ObjectMapper objectMapper = new ObjectMapper();
-        String jsonResponse = objectMapper.writeValueAsString(data);
-
-        response.getWriter().write(jsonResponse);
+        errorResponseWriter.writeForbidden(response);
     }
-}
\ No newline at end of file
+}
@@ -1,32 +1,21 @@
 package com.studyroom.util;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.web.AuthenticationEntryPoint;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
 @Component
+@RequiredArgsConstructor
 public class UserAuthenticationEntryPoint implements AuthenticationEntryPoint {
 
+    private final ErrorResponseWriter errorResponseWriter;
+
     @Override
     public void commence(HttpServletRequest request, HttpServletResponse response,
                          AuthenticationException authException) throws IOException {
-
-        response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
-        response.setContentType("application/json;charset=UTF-8");
-
-        Map<String, Object> data = new HashMap<>();
-        data.put("code", 401);
-        data.put("message", "请先登录");
-        data.put("data", null);
-
-        ObjectMapper objectMapper = new ObjectMapper();
-        String jsonResponse = objectMapper.writeValueAsString(data);
-
-        response.getWriter().write(jsonResponse);
+        errorResponseWriter.writeUnauthorized(response);
     }
-}
\ No newline at end of file
+}
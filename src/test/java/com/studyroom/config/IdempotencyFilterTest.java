@@ -0,0 +1,213 @@
+package com.studyroom.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.studyroom.service.IdempotencyService;
+import com.studyroom.util.ErrorResponseWriter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IdempotencyFilterTest {
+
+    private IdempotencyFilter filter;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private final AtomicInteger executions = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        filter = newFilter(new IdempotencyService(meterRegistry, 100, Duration.ofMinutes(10)));
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("student", null, List.of()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void duplicateRequest_ShouldReplayResponse_WithoutExecutingAgain() throws Exception {
+        MockHttpServletResponse first = perform(request("key-1", "{\"seat_id\":1}"), respond(200, "{\"message\":\"Seat booked successfully\"}"));
+        MockHttpServletResponse second = perform(request("key-1", "{\"seat_id\":1}"), respond(409, "{\"error\":\"Seat is not available\"}"));
+
+        assertEquals(1, executions.get());
+        assertEquals(200, second.getStatus());
+        assertEquals(first.getContentAsString(), second.getContentAsString());
+        assertEquals("true", second.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+        assertEquals(1.0, replays());
+    }
+
+    @Test
+    void reusedKey_ShouldBeRejected_ForDifferentRequest() throws Exception {
+        perform(request("key-1", "{\"seat_id\":1}"), respond(200, "{}"));
+        MockHttpServletResponse response = perform(request("key-1", "{\"seat_id\":2}"), respond(200, "{}"));
+
+        assertEquals(1, executions.get());
+        assertEquals(422, response.getStatus());
+        assertEquals(0.0, replays());
+    }
+
+    @Test
+    void newKey_ShouldBeRejected_WhenAllEntriesAreInFlight() throws Exception {
+        IdempotencyService idempotencyService = new IdempotencyService(meterRegistry, 1, Duration.ofMinutes(10));
+        filter = newFilter(idempotencyService);
+        IdempotencyService.Claim inFlight = idempotencyService.claim("student", "key-1", "fingerprint");
+
+        MockHttpServletResponse rejected = perform(request("key-2", "{}"), respond(200, "{}"));
+
+        assertEquals(503, rejected.getStatus());
+        assertEquals(0, executions.get());
+        // 进行中的执行没有被淘汰，完成后可以为新的 key 腾出空间
+        assertFalse(idempotencyService.claim("student", "key-1", "fingerprint").leader());
+        idempotencyService.complete("student", "key-1", inFlight.execution(),
+                new IdempotencyService.StoredResponse(200, "application/json", new byte[0]));
+        assertEquals(200, perform(request("key-2", "{}"), respond(200, "{}")).getStatus());
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void serverError_ShouldNotBeCached() throws Exception {
+        perform(request("key-1", "{}"), respond(500, "{}"));
+        MockHttpServletResponse response = perform(request("key-1", "{}"), respond(200, "{}"));
+
+        assertEquals(2, executions.get());
+        assertEquals(200, response.getStatus());
+    }
+
+    @Test
+    void concurrentDuplicates_ShouldExecuteOnce() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        FilterChain slow = (req, res) -> {
+            executions.incrementAndGet();
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            ((HttpServletResponse) res).setStatus(200);
+            res.getOutputStream().write("{}".getBytes(StandardCharsets.UTF_8));
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<MockHttpServletResponse> leader = executor.submit(() -> performAs(request("key-1", "{}"), slow));
+            assertTrue(entered.await(5, TimeUnit.SECONDS));
+            List<Future<MockHttpServletResponse>> duplicates = List.of(
+                    executor.submit(() -> performAs(request("key-1", "{}"), slow)),
+                    executor.submit(() -> performAs(request("key-1", "{}"), slow)));
+            release.countDown();
+
+            assertEquals(200, leader.get(5, TimeUnit.SECONDS).getStatus());
+            for (Future<MockHttpServletResponse> duplicate : duplicates) {
+                assertEquals("{}", duplicate.get(5, TimeUnit.SECONDS).getContentAsString());
+            }
+            assertEquals(1, executions.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void requestWithoutKey_ShouldPassThrough() throws Exception {
+        perform(request(null, "{}"), respond(200, "{}"));
+        perform(request(null, "{}"), respond(200, "{}"));
+
+        assertEquals(2, executions.get());
+    }
+
+    @Test
+    void cachedBody_ShouldNotifyReadListener() throws Exception {
+        List<String> events = new CopyOnWriteArrayList<>();
+        StringBuilder read = new StringBuilder();
+        perform(request("key-1", "{\"seat_id\":1}"), (req, res) -> {
+            ServletInputStream input = req.getInputStream();
+            input.setReadListener(new ReadListener() {
+                @Override
+                public void onDataAvailable() throws IOException {
+                    events.add("available");
+                    read.append(new String(input.readAllBytes(), StandardCharsets.UTF_8));
+                }
+
+                @Override
+                public void onAllDataRead() {
+                    events.add("done");
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    events.add("error");
+                }
+            });
+        });
+
+        assertEquals(List.of("available", "done"), events);
+        assertEquals("{\"seat_id\":1}", read.toString());
+    }
+
+    private IdempotencyFilter newFilter(IdempotencyService idempotencyService) {
+        return new IdempotencyFilter(idempotencyService, new ErrorResponseWriter(new ObjectMapper()), Duration.ofSeconds(5));
+    }
+
+    private double replays() {
+        return meterRegistry.get("studyroom.idempotency.replays").counter().count();
+    }
+
+    private MockHttpServletRequest request(String key, String body) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1.0/student/seats/book");
+        if (key != null) {
+            request.addHeader(IdempotencyFilter.HEADER, key);
+        }
+        request.setContentType("application/json");
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+
+    private FilterChain respond(int status, String body) {
+        return (req, res) -> {
+            executions.incrementAndGet();
+            ((HttpServletResponse) res).setStatus(status);
+            res.setContentType("application/json");
+            res.getOutputStream().write(body.getBytes(StandardCharsets.UTF_8));
+        };
+    }
+
+    private MockHttpServletResponse perform(MockHttpServletRequest request, FilterChain chain) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+
+    // 工作线程中使用同一登录用户
+    private MockHttpServletResponse performAs(MockHttpServletRequest request, FilterChain chain) throws Exception {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("student", null, List.of()));
+        try {
+            return perform(request, chain);
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.studyroom.controller;
 import com.studyroom.dto.*;
 import com.studyroom.model.*;
 import com.studyroom.service.*;
+import com.studyroom.util.AuthenticatedUser;
 import com.studyroom.util.JwtUtil;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -12,8 +13,7 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.security.core.Authentication;
 
 import java.time.LocalDateTime;
@@ -43,7 +43,7 @@ public class AdminControllerTest {
     private JwtUtil jwtUtil;
 
     @Mock
-    private AuthenticationManager authenticationManager;
+    private LoginService loginService;
 
     @Mock
     private Authentication authentication;
@@ -102,13 +102,16 @@ public class AdminControllerTest {
     @Test
     void login_ShouldReturnToken_WhenCredentialsValid() {
         // 模拟认证成功
-        when(authenticationManager.authenticate(any(UsernamePasswordAuthenticationToken.class)))
+        when(loginService.authenticate("admin", "password", "127.0.0.1"))
                 .thenReturn(authentication);
         when(authentication.isAuthenticated()).thenReturn(true);
-        when(jwtUtil.generateToken("admin")).thenReturn("testToken");
+        Admin admin = new Admin(1L, "admin", "encodedPassword");
+        AuthenticatedUser principal = AuthenticatedUser.of(admin);
+        when(authentication.getPrincipal()).thenReturn(principal);
+        when(jwtUtil.generateToken(principal)).thenReturn("testToken");
 
         // 执行测试
-        ResponseEntity<?> response = adminController.login(loginRequest);
+        ResponseEntity<?> response = adminController.login(loginRequest, new MockHttpServletRequest());
 
         // 验证结果
         assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -119,11 +122,11 @@ public class AdminControllerTest {
     @Test
     void login_ShouldReturnUnauthorized_WhenCredentialsInvalid() {
         // 模拟认证失败
-        when(authenticationManager.authenticate(any(UsernamePasswordAuthenticationToken.class)))
+        when(loginService.authenticate("admin", "password", "127.0.0.1"))
                 .thenThrow(new RuntimeException("Invalid credentials"));
 
         // 执行测试
-        ResponseEntity<?> response = adminController.login(loginRequest);
+        ResponseEntity<?> response = adminController.login(loginRequest, new MockHttpServletRequest());
 
         // 验证结果
         assertEquals(HttpStatus.UNAUTHORIZED, response.getStatusCode());
@@ -1,25 +1,32 @@
 package com.studyroom.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.studyroom.dto.BookingRequest;
+import com.studyroom.dto.BookingTicket;
 import com.studyroom.dto.LoginRequest;
 import com.studyroom.dto.LoginResponse;
+import com.studyroom.dto.RoomSeatCount;
+import com.studyroom.dto.SeatCandidate;
+import com.studyroom.dto.SeatHold;
 import com.studyroom.dto.ApiResponse;
 import com.studyroom.model.*;
 import com.studyroom.service.*;
+import com.studyroom.util.AuthenticatedUser;
 import com.studyroom.util.JwtUtil;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.Collections;
@@ -28,6 +35,7 @@ import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 
 import org.springframework.web.servlet.resource.NoResourceFoundException; // 添加导入
@@ -36,7 +44,7 @@ import org.springframework.web.servlet.resource.NoResourceFoundException; // 添
 public class StudentControllerTest {
 
     @Mock
-    private AuthenticationManager authenticationManager;
+    private LoginService loginService;
 
     @Mock
     private JwtUtil jwtUtil;
@@ -50,12 +58,21 @@ public class StudentControllerTest {
     @Mock
     private SeatService seatService;
 
+    @Mock
+    private BookingWriter bookingWriter;
+
     @Mock
     private BookingService bookingService;
 
+    @Mock
+    private BookingTicketService bookingTicketService;
+
     @Mock
     private Authentication authentication;
 
+    @Spy
+    private SeatMapSnapshots seatMapSnapshots = new SeatMapSnapshots(new ObjectMapper());
+
     @InjectMocks
     private StudentController studentController;
 
@@ -114,11 +131,13 @@ public class StudentControllerTest {
 
     @Test
     void login_ShouldReturnToken() {
-        when(authenticationManager.authenticate(any(UsernamePasswordAuthenticationToken.class)))
+        when(loginService.authenticate("student", "password", "127.0.0.1"))
                 .thenReturn(authentication);
-        when(jwtUtil.generateToken("student")).thenReturn("test-jwt-token");
+        AuthenticatedUser principal = AuthenticatedUser.of(testStudent);
+        when(authentication.getPrincipal()).thenReturn(principal);
+        when(jwtUtil.generateToken(principal)).thenReturn("test-jwt-token");
 
-        ResponseEntity<?> response = studentController.login(loginRequest);
+        ResponseEntity<?> response = studentController.login(loginRequest, new MockHttpServletRequest());
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertTrue(response.getBody() instanceof Map); // 修改处
@@ -131,7 +150,7 @@ public class StudentControllerTest {
     void leaveSeat_ShouldReturnSuccess() {
         doNothing().when(seatService).temporaryLeaveSeat(testStudent, 1L); // 修改处：roomService -> seatService
 
-        ResponseEntity<?> response = studentController.leaveSeat(1L);
+        ResponseEntity<?> response = studentController.leaveSeat(1L, testStudent);
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertTrue(response.getBody() instanceof Map); 
@@ -145,7 +164,7 @@ public class StudentControllerTest {
     void releaseSeat_ShouldReturnSuccess() {
         doNothing().when(seatService).releaseSeat(testStudent, 1L); // 修改处：roomService -> seatService
 
-        ResponseEntity<?> response = studentController.releaseSeat(1L);
+        ResponseEntity<?> response = studentController.releaseSeat(1L, testStudent);
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertTrue(response.getBody() instanceof Map); 
@@ -160,7 +179,7 @@ public class StudentControllerTest {
         when(bookingService.getAllBookingsByStudentId(1L))
                 .thenReturn(Collections.singletonList(testBooking));
 
-        ResponseEntity<?> response = studentController.getBookingHistory();
+        ResponseEntity<?> response = studentController.getBookingHistory(testStudent);
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertTrue(response.getBody() instanceof Map);
@@ -172,7 +191,7 @@ public class StudentControllerTest {
     void checkInSeat_ShouldReturnSuccess() {
         doNothing().when(seatService).checkInSeat(testStudent, 1L); // 修改处：roomService -> seatService
 
-        ResponseEntity<?> response = studentController.checkInSeat(1L);
+        ResponseEntity<?> response = studentController.checkInSeat(1L, testStudent);
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertTrue(response.getBody() instanceof Map); 
@@ -183,37 +202,121 @@ public class StudentControllerTest {
     }
 
     @Test
-    void getRooms_ShouldReturnRooms() {
+    void getRooms_ShouldReturnRooms() throws Exception {
         when(roomService.getAllRooms()).thenReturn(Collections.singletonList(testRoom));
-        when(seatService.getSeats(1L)).thenReturn(Collections.singletonList(testSeat));
+        when(roomService.getSeatCounts()).thenReturn(Map.of(1L, new RoomSeatCount(1L, 1L, 1L)));
 
-        ResponseEntity<?> response = studentController.getAllRooms(); // 修改此行
+        ResponseEntity<?> response = studentController.getAllRooms(null);
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
-        assertTrue(response.getBody() instanceof Map);
-        List<?> rooms = (List<?>) ((Map<?, ?>) response.getBody()).get("rooms");
+        assertNotNull(response.getHeaders().getETag());
+        Map<?, ?> body = new ObjectMapper().readValue((byte[]) response.getBody(), Map.class);
+        List<?> rooms = (List<?>) body.get("rooms");
         assertEquals(1, rooms.size());
+        assertEquals(1, ((Map<?, ?>) rooms.get(0)).get("seat_number"));
+        verify(seatService, never()).getSeats(anyLong());
+    }
+
+    @Test
+    void getRooms_ShouldReturnNotModified_WhenETagMatches() {
+        when(roomService.getAllRooms()).thenReturn(Collections.singletonList(testRoom));
+        when(roomService.getSeatCounts()).thenReturn(Map.of(1L, new RoomSeatCount(1L, 1L, 1L)));
+        String etag = studentController.getAllRooms(null).getHeaders().getETag();
+
+        ResponseEntity<?> response = studentController.getAllRooms(etag);
+
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertNull(response.getBody());
+        verify(roomService, times(1)).getAllRooms();
+    }
+
+    @Test
+    void getRooms_ShouldRebuild_AfterRoomChanged() {
+        when(roomService.getAllRooms()).thenReturn(Collections.singletonList(testRoom));
+        when(roomService.getSeatCounts()).thenReturn(Map.of(1L, new RoomSeatCount(1L, 1L, 1L)));
+        String etag = studentController.getAllRooms(null).getHeaders().getETag();
+
+        seatMapSnapshots.roomChanged(1L);
+        ResponseEntity<?> response = studentController.getAllRooms(etag);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNotEquals(etag, response.getHeaders().getETag());
+        verify(roomService, times(2)).getAllRooms();
+    }
+
+    @Test
+    void getFreeSeats_ShouldReturnSeatsFromSeatService() {
+        Instant start = Instant.now().plusSeconds(3600);
+        Instant end = start.plusSeconds(3600);
+        SeatCandidate candidate = new SeatCandidate(1L, "A1", true, 1L, "Test Room", "Library");
+        when(seatService.findFreeSeats(1L, start, end)).thenReturn(List.of(candidate));
+
+        ResponseEntity<?> response = studentController.getFreeSeats(1L, start.toEpochMilli(), end.toEpochMilli());
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        List<?> seats = (List<?>) ((Map<?, ?>) response.getBody()).get("seats");
+        assertEquals(1, seats.size());
+        assertEquals("1", ((Map<?, ?>) seats.get(0)).get("seat_id"));
+    }
+
+    @Test
+    void searchFreeSeats_ShouldReturnCandidates() {
+        Instant start = Instant.now().plusSeconds(3600);
+        Instant end = start.plusSeconds(3600);
+        SeatCandidate candidate = new SeatCandidate(1L, "A1", true, 1L, "Test Room", "Library");
+        when(seatService.searchFreeSeats(testStudent, null, true, null, start, end, 20)).thenReturn(List.of(candidate));
+
+        ResponseEntity<?> response = studentController.searchFreeSeats(testStudent,
+                start.toEpochMilli(), end.toEpochMilli(), true, null, null, 20);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        List<?> seats = (List<?>) ((Map<?, ?>) response.getBody()).get("seats");
+        assertEquals("1", ((Map<?, ?>) seats.get(0)).get("room_id"));
+        assertEquals("Library", ((Map<?, ?>) seats.get(0)).get("location"));
     }
 
     @Test
     void bookRoom_ShouldReturnSuccess() throws NoResourceFoundException { // 修改此行，添加 throws NoResourceFoundException
-        doNothing().when(seatService).bookSeat(testStudent, bookingRequest);
+        doNothing().when(bookingWriter).book(testStudent, bookingRequest);
 
-        ResponseEntity<?> response = studentController.bookSeat(bookingRequest);
+        ResponseEntity<?> response = studentController.bookSeat(bookingRequest, testStudent);
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertTrue(response.getBody() instanceof Map); // 修改处
         @SuppressWarnings("unchecked")
         Map<String, String> responseBody = (Map<String, String>) response.getBody(); // 修改处
         assertEquals("Seat booked successfully", responseBody.get("message")); // 修改处
-        verify(seatService).bookSeat(testStudent, bookingRequest);
+        verify(bookingWriter).book(testStudent, bookingRequest);
+    }
+
+    @Test
+    void bookSeatAsync_ShouldReturnAcceptedWithTicket() {
+        BookingTicket ticket = new BookingTicket("ticket-1", BookingTicket.Status.PENDING, null, testStudent.getId());
+        when(bookingTicketService.submit(testStudent, bookingRequest)).thenReturn(ticket);
+
+        ResponseEntity<?> response = studentController.bookSeatAsync(bookingRequest, testStudent);
+
+        assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+        assertSame(ticket, response.getBody());
+    }
+
+    @Test
+    void holdSeat_ShouldReturnHold() throws NoResourceFoundException {
+        SeatHold hold = new SeatHold("hold-1", 1L, Instant.now(), Instant.now().plusSeconds(3600),
+                Instant.now().plusSeconds(60), testStudent.getId());
+        when(seatService.holdSeat(testStudent, bookingRequest)).thenReturn(hold);
+
+        ResponseEntity<?> response = studentController.holdSeat(bookingRequest, testStudent);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertSame(hold, response.getBody());
     }
 
     @Test
     void cancelBooking_ShouldReturnSuccess() {
         doNothing().when(seatService).cancelBooking(testStudent, 1L); // 修改处：roomService -> seatService
 
-        ResponseEntity<?> response = studentController.cancelBooking(1L);
+        ResponseEntity<?> response = studentController.cancelBooking(1L, testStudent);
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertTrue(response.getBody() instanceof Map); 
@@ -228,7 +331,7 @@ public class StudentControllerTest {
         doThrow(new RuntimeException("Booking not found"))
                 .when(seatService).cancelBooking(testStudent, 2L); // 修改处：roomService -> seatService
 
-        ResponseEntity<?> response = studentController.cancelBooking(2L);
+        ResponseEntity<?> response = studentController.cancelBooking(2L, testStudent);
 
         assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
         assertTrue(response.getBody() instanceof Map);
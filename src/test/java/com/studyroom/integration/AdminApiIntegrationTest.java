@@ -256,4 +256,17 @@ public class AdminApiIntegrationTest {
         Booking updatedBooking = bookingRepository.findById(booking.getId()).orElseThrow();
         assert updatedBooking.getStatus() == 0; // 修改: Booking.BookingStatus.CANCELLED -> 0
     }
-}
\ No newline at end of file
+
+    @Test
+    void testActuatorMetricsRequireAdmin() throws Exception {
+        mockMvc.perform(get("/actuator/metrics"))
+                .andExpect(status().isForbidden());
+
+        mockMvc.perform(get("/actuator/metrics")
+                        .header("Authorization", jwtToken))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/actuator/health"))
+                .andExpect(status().isOk());
+    }
+}
@@ -0,0 +1,98 @@
+package com.studyroom.integration;
+
+import com.studyroom.model.Room;
+import com.studyroom.model.Seat;
+import com.studyroom.model.Student;
+import com.studyroom.repository.BookingRepository;
+import com.studyroom.repository.RoomRepository;
+import com.studyroom.repository.SeatRepository;
+import com.studyroom.repository.SlotClaimRepository;
+import com.studyroom.repository.StudentRepository;
+import org.springframework.context.ApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 集成测试共用的数据：一个自习室、若干座位和学生。
+ * 数据直接提交到数据库，测试结束后调用 {@link #cleanup()} 在一个事务中删除，连同其上的预约和时段占用。
+ */
+class BookingFixture {
+
+    private final RoomRepository roomRepository;
+    private final SeatRepository seatRepository;
+    private final StudentRepository studentRepository;
+    private final BookingRepository bookingRepository;
+    private final SlotClaimRepository slotClaimRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private Room room;
+    private final List<Seat> seats = new ArrayList<>();
+    private final List<Student> students = new ArrayList<>();
+
+    BookingFixture(ApplicationContext context) {
+        this.roomRepository = context.getBean(RoomRepository.class);
+        this.seatRepository = context.getBean(SeatRepository.class);
+        this.studentRepository = context.getBean(StudentRepository.class);
+        this.bookingRepository = context.getBean(BookingRepository.class);
+        this.slotClaimRepository = context.getBean(SlotClaimRepository.class);
+        this.transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+    }
+
+    /**
+     * 创建名称以 name 开头的自习室及 seatCount 个座位、studentCount 个学生
+     */
+    BookingFixture create(String name, int seatCount, int studentCount) {
+        String suffix = String.valueOf(System.nanoTime());
+        room = new Room();
+        room.setName(name + " " + suffix);
+        room.setType(0);
+        room.setCapacity(seatCount);
+        roomRepository.save(room);
+
+        for (int i = 0; i < seatCount; i++) {
+            Seat seat = new Seat();
+            seat.setRoom(room);
+            seat.setSeatName("S" + i);
+            seat.setSeatNumber("S" + i);
+            seats.add(seatRepository.save(seat));
+        }
+
+        for (int i = 0; i < studentCount; i++) {
+            Student student = new Student();
+            student.setUsername(name.toLowerCase().replace(' ', '-') + "-" + suffix + "-" + i);
+            student.setPassword("password");
+            student.setType(1);
+            students.add(studentRepository.save(student));
+        }
+        return this;
+    }
+
+    Room room() {
+        return room;
+    }
+
+    List<Seat> seats() {
+        return seats;
+    }
+
+    List<Student> students() {
+        return students;
+    }
+
+    void cleanup() {
+        transactionTemplate.executeWithoutResult(status -> {
+            for (Seat seat : seats) {
+                bookingRepository.deleteBySeatId(seat.getId());
+                slotClaimRepository.deleteBySeatId(seat.getId());
+            }
+            seatRepository.deleteAll(seats);
+            if (room != null) {
+                roomRepository.delete(room);
+            }
+            studentRepository.deleteAll(students);
+        });
+    }
+}
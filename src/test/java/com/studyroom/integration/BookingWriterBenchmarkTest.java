@@ -0,0 +1,157 @@
+package com.studyroom.integration;
+
+import com.studyroom.dto.BookingRequest;
+import com.studyroom.model.Seat;
+import com.studyroom.model.Student;
+import com.studyroom.repository.BookingRepository;
+import com.studyroom.service.BookingLottery;
+import com.studyroom.service.BookingWriter;
+import com.studyroom.service.SeatService;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 对比逐条提交与组提交两种写入方式的预约吞吐量，并验证组提交确实把并发预约合并成批。
+ * 每一轮每个学生预约一次，各轮使用不同日期，座位与时段互不冲突，只比较写库开销。
+ * 吞吐量通过日志输出；测试库是内存 H2，提交本身几乎没有开销，因此不对两者的快慢做断言。
+ */
+@Slf4j
+@SpringBootTest
+@ActiveProfiles("test")
+public class BookingWriterBenchmarkTest {
+
+    private static final int SEATS = 50;
+    private static final int SLOTS_PER_SEAT = 8;
+    private static final int THREADS = 32;
+    private static final int ROUNDS = 3;
+
+    @Autowired
+    private SeatService seatService;
+
+    @Autowired
+    private BookingLottery bookingLottery;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ApplicationContext context;
+
+    private BookingFixture fixture;
+    private List<Seat> seats;
+    private List<Student> students;
+
+    @BeforeEach
+    void setUp() {
+        fixture = new BookingFixture(context).create("Benchmark Room", SEATS, SEATS * SLOTS_PER_SEAT);
+        seats = fixture.seats();
+        students = fixture.students();
+    }
+
+    @AfterEach
+    void tearDown() {
+        fixture.cleanup();
+    }
+
+    @Test
+    void groupCommit_ShouldBatchBookings_AndBookEverySeatSlot() throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        BookingWriter perRequest = newWriter(false, new SimpleMeterRegistry());
+        BookingWriter groupCommit = newWriter(true, meterRegistry);
+        try {
+            Instant day = Instant.now().plus(1, ChronoUnit.DAYS).truncatedTo(ChronoUnit.HOURS);
+            // 预热一轮，让 JIT、连接池和 Hibernate 缓存就绪，结果不计入
+            run(perRequest, day);
+            run(groupCommit, day.plus(1, ChronoUnit.DAYS));
+            day = day.plus(2, ChronoUnit.DAYS);
+
+            // 两种方式交替执行多轮，避免先后顺序带来的偏差，各取最好的一轮
+            double perRequestRate = 0;
+            double groupCommitRate = 0;
+            for (int round = 0; round < ROUNDS; round++) {
+                boolean perRequestFirst = round % 2 == 0;
+                double first = run(perRequestFirst ? perRequest : groupCommit, day);
+                double second = run(perRequestFirst ? groupCommit : perRequest, day.plus(1, ChronoUnit.DAYS));
+                perRequestRate = Math.max(perRequestRate, perRequestFirst ? first : second);
+                groupCommitRate = Math.max(groupCommitRate, perRequestFirst ? second : first);
+                day = day.plus(2, ChronoUnit.DAYS);
+            }
+            String rates = String.format("per-request: %.0f bookings/s, group commit: %.0f bookings/s",
+                    perRequestRate, groupCommitRate);
+            log.info("Booking writer benchmark, {} bookings per run, best of {} rounds: {}",
+                    students.size(), ROUNDS, rates);
+
+            int runsPerMode = ROUNDS + 1;
+            long booked = bookingRepository.findAll().stream()
+                    .filter(booking -> seats.stream().anyMatch(seat -> seat.getId().equals(booking.getSeat().getId())))
+                    .count();
+            assertEquals(2L * runsPerMode * students.size(), booked, rates);
+
+            // 组提交下每个预约都经过一个批次，且并发请求被合并到同一事务
+            DistributionSummary batchSize = meterRegistry.get("studyroom.booking.batch.size").summary();
+            assertEquals((long) runsPerMode * students.size(), (long) batchSize.totalAmount(), rates);
+            assertTrue(batchSize.count() < (long) runsPerMode * students.size(),
+                    batchSize.count() + " batches for " + runsPerMode * students.size() + " bookings; " + rates);
+            assertEquals(0.0, meterRegistry.get("studyroom.booking.batch.fallbacks").counter().count(), rates);
+        } finally {
+            groupCommit.shutdown();
+        }
+    }
+
+    private BookingWriter newWriter(boolean enabled, MeterRegistry meterRegistry) {
+        return new BookingWriter(seatService, bookingLottery, transactionManager, meterRegistry, enabled,
+                32, Duration.ofMillis(2), students.size(), Duration.ofSeconds(30));
+    }
+
+    // 每个学生占一个座位的一个 1 小时时段，返回每秒预约数
+    private double run(BookingWriter writer, Instant day) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < students.size(); i++) {
+            Student student = students.get(i);
+            Seat seat = seats.get(i % SEATS);
+            Instant slotStart = day.plus(i / SEATS, ChronoUnit.HOURS);
+            futures.add(executor.submit(() -> {
+                start.await();
+                BookingRequest request = new BookingRequest();
+                request.setSeatId(seat.getId());
+                request.setStartTime(slotStart.toEpochMilli());
+                request.setEndTime(slotStart.plus(1, ChronoUnit.HOURS).toEpochMilli());
+                writer.book(student, request);
+                return null;
+            }));
+        }
+
+        long began = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        long elapsedNanos = System.nanoTime() - began;
+        executor.shutdown();
+        return futures.size() * 1e9 / elapsedNanos;
+    }
+}
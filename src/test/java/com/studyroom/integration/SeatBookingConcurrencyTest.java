@@ -0,0 +1,137 @@
+package com.studyroom.integration;
+
+import com.studyroom.dto.BookingRequest;
+import com.studyroom.exception.BookingConflictException;
+import com.studyroom.model.Seat;
+import com.studyroom.model.Student;
+import com.studyroom.repository.BookingRepository;
+import com.studyroom.repository.SeatRepository;
+import com.studyroom.repository.SlotClaimRepository;
+import com.studyroom.service.SeatService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 多线程同时预约同一批座位，验证不会出现重复预约。
+ * 不使用 @Transactional，每次预约都在自己的事务中提交。
+ * 同时记录每秒处理的预约尝试数，并要求不低于一个宽松的下限。
+ */
+@Slf4j
+@SpringBootTest
+@ActiveProfiles("test")
+public class SeatBookingConcurrencyTest {
+
+    private static final int SEATS = 20;
+    private static final int STUDENTS = 100;
+    private static final int THREADS = 32;
+    private static final double MIN_ATTEMPTS_PER_SECOND = 100;
+
+    @Autowired
+    private SeatService seatService;
+
+    @Autowired
+    private SeatRepository seatRepository;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private SlotClaimRepository slotClaimRepository;
+
+    @Autowired
+    private ApplicationContext context;
+
+    private BookingFixture fixture;
+    private List<Seat> seats;
+    private List<Student> students;
+
+    @BeforeEach
+    void setUp() {
+        fixture = new BookingFixture(context).create("Concurrency Room", SEATS, STUDENTS);
+        seats = fixture.seats();
+        students = fixture.students();
+    }
+
+    @AfterEach
+    void tearDown() {
+        fixture.cleanup();
+    }
+
+    @Test
+    void bookSeat_ShouldNeverDoubleBook_UnderConcurrentAttempts() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger successes = new AtomicInteger();
+        AtomicInteger conflicts = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+
+        Instant startTime = Instant.now().plus(1, ChronoUnit.HOURS);
+        // 每个学生依次尝试所有座位，共 SEATS * STUDENTS 次预约
+        for (Student student : students) {
+            for (Seat seat : seats) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    BookingRequest request = new BookingRequest();
+                    request.setSeatId(seat.getId());
+                    request.setStartTime(startTime.toEpochMilli());
+                    request.setEndTime(startTime.plus(2, ChronoUnit.HOURS).toEpochMilli());
+                    try {
+                        seatService.bookSeat(student, request);
+                        successes.incrementAndGet();
+                    } catch (BookingConflictException e) {
+                        conflicts.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+        }
+
+        long began = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        long elapsedMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - began));
+        executor.shutdown();
+
+        double attemptsPerSecond = futures.size() * 1000.0 / elapsedMillis;
+        String timing = String.format("%d booking attempts in %d ms (%.0f attempts/s)",
+                futures.size(), elapsedMillis, attemptsPerSecond);
+        log.info("Concurrent booking: {}", timing);
+
+        assertEquals(SEATS, successes.get(), timing);
+        assertEquals(SEATS * STUDENTS - SEATS, conflicts.get(), timing);
+
+        Map<Long, Long> bookingsPerSeat = bookingRepository.findAll().stream()
+                .filter(booking -> booking.getSeat() != null)
+                .collect(Collectors.groupingBy(booking -> booking.getSeat().getId(), Collectors.counting()));
+        for (Seat seat : seats) {
+            assertEquals(1L, bookingsPerSeat.get(seat.getId()), "seat " + seat.getId());
+            assertEquals(Seat.SeatStatus.OCCUPIED, seatRepository.findById(seat.getId()).orElseThrow().getStatus());
+        }
+        // 每个成功的预约 2 小时，占用 8 个 15 分钟时段（起点未对齐时多占一个）
+        long claims = slotClaimRepository.findAll().stream()
+                .filter(claim -> seats.stream().anyMatch(seat -> seat.getId().equals(claim.getId().getSeatId())))
+                .count();
+        assertTrue(claims >= SEATS * 8L && claims <= SEATS * 9L);
+        // 下限取得很宽，只用来发现冲突路径被串行化或重新走数据库之类的明显退化
+        assertTrue(attemptsPerSecond >= MIN_ATTEMPTS_PER_SECOND, timing);
+    }
+}
@@ -0,0 +1,94 @@
+package com.studyroom.integration;
+
+import com.studyroom.dto.SeatBookings;
+import com.studyroom.model.Booking;
+import com.studyroom.model.Room;
+import com.studyroom.model.Seat;
+import com.studyroom.repository.BookingRepository;
+import com.studyroom.service.BookingService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 座位图的查询次数不随座位数增长
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+public class SeatMapQueryCountTest {
+
+    private static final int SEATS = 30;
+    private static final int STUDENTS = 3;
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ApplicationContext context;
+
+    private BookingFixture fixture;
+    private Room room;
+
+    @BeforeEach
+    void setUp() {
+        fixture = new BookingFixture(context).create("Seat Map Room", SEATS, STUDENTS);
+        room = fixture.room();
+
+        // 每个座位当天有 STUDENTS 个互不重叠的预约，预约已结束，不参与状态流转
+        Instant dayStart = LocalDate.now().atStartOfDay(ZoneId.systemDefault()).toInstant();
+        for (Seat seat : fixture.seats()) {
+            for (int j = 0; j < STUDENTS; j++) {
+                Booking booking = new Booking();
+                booking.setSeat(seat);
+                booking.setRoom(room);
+                booking.setStudent(fixture.students().get(j));
+                booking.setStartTime(dayStart.plus(8L + 2L * j, ChronoUnit.HOURS));
+                booking.setEndTime(dayStart.plus(9L + 2L * j, ChronoUnit.HOURS));
+                booking.setStatus(4);
+                bookingRepository.save(booking);
+            }
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        fixture.cleanup();
+    }
+
+    @Test
+    void getSeatMap_ShouldUseConstantNumberOfQueries() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<SeatBookings> seatMap = bookingService.getSeatMap(room.getId());
+
+        assertEquals(SEATS, seatMap.size());
+        seatMap.forEach(entry -> {
+            assertEquals(STUDENTS, entry.getBookings().size());
+            entry.getBookings().forEach(booking -> assertNotNull(booking.getStudent().getUsername()));
+        });
+        assertTrue(statistics.getPrepareStatementCount() <= 2,
+                "seat map used " + statistics.getPrepareStatementCount() + " statements");
+    }
+}
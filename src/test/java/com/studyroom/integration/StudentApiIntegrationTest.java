@@ -150,6 +150,30 @@ public class StudentApiIntegrationTest {
                 .andExpect(status().isOk());
     }
 
+    @Test
+    void testConfirmHoldWithTokenOnly() throws Exception {
+        BookingRequest holdRequest = new BookingRequest();
+        holdRequest.setSeatId(testSeat.getId());
+        holdRequest.setStartTime(Instant.now().plus(1, ChronoUnit.HOURS).toEpochMilli());
+        holdRequest.setEndTime(Instant.now().plus(3, ChronoUnit.HOURS).toEpochMilli());
+
+        MvcResult holdResult = mockMvc.perform(post("/api/v1.0/student/seats/hold")
+                        .header("Authorization", jwtToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(holdRequest)))
+                .andExpect(status().isOk())
+                .andReturn();
+        String holdToken = objectMapper.readTree(holdResult.getResponse().getContentAsString())
+                .get("hold_token").asText();
+
+        // 确认时只带保留令牌，座位与时段取自保留
+        mockMvc.perform(post("/api/v1.0/student/seats/book")
+                        .header("Authorization", jwtToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"hold_token\":\"" + holdToken + "\"}"))
+                .andExpect(status().isOk());
+    }
+
     @Test
     void testSearchSeats() throws Exception {
         // 首先获取自习室列表
@@ -165,4 +189,16 @@ public class StudentApiIntegrationTest {
                 .andExpect(jsonPath("$.seats").isArray())
                 .andExpect(jsonPath("$.seats[0].seat_id").value(testSeat.getId().toString()));
     }
-}
\ No newline at end of file
+
+    @Test
+    void testLogoutRevokesToken() throws Exception {
+        mockMvc.perform(post("/api/v1.0/student/logout")
+                        .header("Authorization", jwtToken))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/v1.0/student/rooms")
+                        .header("Authorization", jwtToken))
+                .andExpect(status().isUnauthorized())
+                .andExpect(jsonPath("$.error").value("Revoked Login Token"));
+    }
+}
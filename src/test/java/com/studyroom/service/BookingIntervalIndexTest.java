@@ -0,0 +1,56 @@
+package com.studyroom.service;
+
+import com.studyroom.exception.BookingConflictException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BookingIntervalIndexTest {
+
+    private BookingIntervalIndex index;
+    private Instant start;
+    private Instant end;
+
+    @BeforeEach
+    void setUp() {
+        index = new BookingIntervalIndex();
+        start = Instant.now().plusSeconds(3600);
+        end = start.plusSeconds(3600);
+    }
+
+    @Test
+    void reserve_ShouldRejectOverlapOnSeatOrStudent() {
+        index.reserve(1L, 1L, start, end);
+
+        assertThrows(BookingConflictException.class, () -> index.reserve(1L, 2L, start.plusSeconds(1800), end));
+        assertThrows(BookingConflictException.class, () -> index.reserve(2L, 1L, start.plusSeconds(1800), end));
+        assertDoesNotThrow(() -> index.reserve(1L, 2L, end, end.plusSeconds(3600)));
+    }
+
+    @Test
+    void reads_ShouldReturnFalse_ForUnknownSeatOrStudent() {
+        assertFalse(index.overlapsSeat(1L, start, end));
+        assertFalse(index.overlapsStudent(1L, start, end));
+        assertFalse(index.hasOtherBookings(1L, null));
+    }
+
+    @Test
+    void removeSeat_ShouldReleaseStudentIntervals_AndAllowNewReservations() {
+        BookingIntervalIndex.Reservation reservation = index.reserve(1L, 1L, start, end);
+        index.confirm(reservation, 10L);
+
+        index.removeSeat(1L);
+
+        assertFalse(index.overlapsSeat(1L, start, end));
+        assertFalse(index.overlapsStudent(1L, start, end));
+        assertEquals(0, index.size());
+        assertDoesNotThrow(() -> index.reserve(1L, 2L, start, end));
+        assertDoesNotThrow(() -> index.reserve(2L, 1L, start, end));
+        // 已移除座位上的旧占用再撤销不影响新的占用
+        index.cancel(reservation);
+        assertTrue(index.overlapsSeat(1L, start, end));
+    }
+}
@@ -0,0 +1,198 @@
+package com.studyroom.service;
+
+import com.studyroom.model.Booking;
+import com.studyroom.model.Room;
+import com.studyroom.model.Seat;
+import com.studyroom.repository.BookingRepository;
+import com.studyroom.repository.SeatRepository;
+import com.studyroom.repository.SlotClaimRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class BookingLifecycleSchedulerTest {
+
+    @Mock
+    private BookingRepository bookingRepository;
+
+    @Mock
+    private SeatRepository seatRepository;
+
+    @Mock
+    private SlotClaimRepository slotClaimRepository;
+
+    @Mock
+    private BookingIntervalIndex bookingIntervalIndex;
+
+    @Mock
+    private RoomOccupancyCounters roomOccupancyCounters;
+
+    @Mock
+    private SeatMapSnapshots seatMapSnapshots;
+
+    @Mock
+    private SeatSlotBitmaps seatSlotBitmaps;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private BookingLifecycleScheduler scheduler;
+
+    private Booking booking;
+
+    // 预约开始时间放在一小时后，后台 tick 不会提前处理
+    private Instant startTime;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        scheduler = new BookingLifecycleScheduler(bookingRepository, seatRepository, slotClaimRepository,
+                bookingIntervalIndex, roomOccupancyCounters, seatMapSnapshots, seatSlotBitmaps,
+                transactionManager, meterRegistry,
+                Duration.ofMinutes(15), Duration.ofMinutes(30), Duration.ofSeconds(1));
+
+        Room room = new Room();
+        room.setId(5L);
+        Seat seat = new Seat();
+        seat.setId(1L);
+        seat.setRoom(room);
+
+        startTime = Instant.now().plus(Duration.ofHours(1)).truncatedTo(ChronoUnit.SECONDS);
+        booking = new Booking();
+        booking.setId(10L);
+        booking.setSeat(seat);
+        booking.setStartTime(startTime);
+        booking.setEndTime(startTime.plus(Duration.ofHours(2)));
+        booking.setStatus(1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    void tick_ShouldCancelNoShow_AfterCheckInGrace() {
+        when(bookingRepository.findNoShowsForUpdate(eq(List.of(10L)), any(Instant.class))).thenReturn(List.of(booking));
+        when(bookingRepository.expireNoShows(eq(List.of(10L)), any(Instant.class))).thenReturn(1);
+        when(seatRepository.releaseIdleSeats(Set.of(1L), Seat.SeatStatus.OCCUPIED, Seat.SeatStatus.AVAILABLE,
+                SeatService.ACTIVE_STATUSES)).thenReturn(1);
+        scheduler.schedule(booking);
+
+        scheduler.tick(startTime.plus(Duration.ofMinutes(14)).toEpochMilli());
+        verify(bookingRepository, never()).findNoShowsForUpdate(anyList(), any());
+
+        scheduler.tick(startTime.plus(Duration.ofMinutes(15)).toEpochMilli());
+        verify(bookingRepository).expireNoShows(List.of(10L), startTime);
+        verify(slotClaimRepository).deleteByBookingIdIn(List.of(10L));
+        verify(roomOccupancyCounters).transition(5L, Seat.SeatStatus.OCCUPIED, Seat.SeatStatus.AVAILABLE, 1);
+        verify(seatMapSnapshots).roomChanged(5L);
+        verify(seatSlotBitmaps).release(5L, 1L, booking.getStartTime(), booking.getEndTime());
+        verify(bookingIntervalIndex).remove(10L);
+        assertEquals(1.0, meterRegistry.get("studyroom.booking.lifecycle.transitions")
+                .tag("kind", "no_show").counter().count());
+    }
+
+    @Test
+    void tick_ShouldSkipRelease_WhenBookingAlreadyCheckedIn() {
+        when(bookingRepository.findNoShowsForUpdate(eq(List.of(10L)), any(Instant.class))).thenReturn(List.of());
+        scheduler.schedule(booking);
+
+        scheduler.tick(startTime.plus(Duration.ofMinutes(15)).toEpochMilli());
+
+        verify(bookingRepository, never()).expireNoShows(anyList(), any());
+        verify(slotClaimRepository, never()).deleteByBookingIdIn(anyList());
+        verify(bookingIntervalIndex, never()).remove(any());
+    }
+
+    @Test
+    void schedule_ShouldAddLeaveTimeoutAndCompletion_ForTemporaryLeave() {
+        booking.setStatus(3);
+        booking.setLeaveTime(startTime);
+        scheduler.schedule(booking);
+
+        scheduler.tick(startTime.plus(Duration.ofMinutes(30)).toEpochMilli());
+        verify(bookingRepository).findExpiredLeavesForUpdate(List.of(10L), startTime);
+
+        scheduler.tick(booking.getEndTime().toEpochMilli());
+        verify(bookingRepository).findEndedForUpdate(List.of(10L), booking.getEndTime());
+    }
+
+    @Test
+    void tick_ShouldRetryTransition_WhenUpdateFails() {
+        booking.setStatus(2);
+        when(bookingRepository.findEndedForUpdate(anyList(), any(Instant.class)))
+                .thenThrow(new IllegalStateException("database unavailable"))
+                .thenReturn(List.of());
+        scheduler.schedule(booking);
+
+        long endMillis = booking.getEndTime().toEpochMilli();
+        scheduler.tick(endMillis);
+        scheduler.tick(endMillis + 60_000);
+
+        verify(bookingRepository, times(2)).findEndedForUpdate(eq(List.of(10L)), any(Instant.class));
+        assertEquals(1.0, meterRegistry.get("studyroom.booking.lifecycle.failures").counter().count());
+    }
+
+    @Test
+    void tick_ShouldNotReleaseRebookedSlots_WhenStaleTransitionFires() {
+        SeatSlotBitmaps bitmaps = new SeatSlotBitmaps();
+        BookingLifecycleScheduler withBitmaps = new BookingLifecycleScheduler(bookingRepository, seatRepository,
+                slotClaimRepository, bookingIntervalIndex, roomOccupancyCounters, seatMapSnapshots, bitmaps,
+                transactionManager, new SimpleMeterRegistry(),
+                Duration.ofMinutes(15), Duration.ofMinutes(30), Duration.ofSeconds(1));
+        try {
+            // 预约 10 已被学生取消，同一座位同一时段又被预约 11 占用；同一 tick 中预约 12 真正超时
+            Booking rebooked = new Booking();
+            rebooked.setId(11L);
+            rebooked.setSeat(booking.getSeat());
+            rebooked.setStartTime(booking.getStartTime());
+            rebooked.setEndTime(booking.getEndTime());
+            bitmaps.occupy(5L, 1L, rebooked.getStartTime(), rebooked.getEndTime());
+
+            Seat otherSeat = new Seat();
+            otherSeat.setId(2L);
+            otherSeat.setRoom(booking.getSeat().getRoom());
+            Booking noShow = new Booking();
+            noShow.setId(12L);
+            noShow.setSeat(otherSeat);
+            noShow.setStartTime(startTime);
+            noShow.setEndTime(startTime.plus(Duration.ofHours(1)));
+            noShow.setStatus(1);
+            bitmaps.occupy(5L, 2L, noShow.getStartTime(), noShow.getEndTime());
+
+            when(bookingRepository.findNoShowsForUpdate(anyList(), any(Instant.class))).thenReturn(List.of(noShow));
+            when(bookingRepository.expireNoShows(eq(List.of(12L)), any(Instant.class))).thenReturn(1);
+            withBitmaps.schedule(booking);
+            withBitmaps.schedule(noShow);
+
+            withBitmaps.tick(startTime.plus(Duration.ofMinutes(15)).toEpochMilli());
+
+            verify(slotClaimRepository).deleteByBookingIdIn(List.of(12L));
+            verify(bookingIntervalIndex, never()).remove(10L);
+            assertFalse(bitmaps.isFree(5L, 1L, bitmaps.window(rebooked.getStartTime(), rebooked.getEndTime())));
+            assertTrue(bitmaps.isFree(5L, 2L, bitmaps.window(noShow.getStartTime(), noShow.getEndTime())));
+        } finally {
+            withBitmaps.shutdown();
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.studyroom.service;
+
+import com.studyroom.dto.BookingRequest;
+import com.studyroom.exception.BookingConflictException;
+import com.studyroom.model.Booking;
+import com.studyroom.model.Room;
+import com.studyroom.model.Seat;
+import com.studyroom.model.Student;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class BookingLotteryTest {
+
+    @Mock
+    private SeatService seatService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SeatSearchIndex seatSearchIndex;
+
+    private BookingLottery bookingLottery;
+
+    private Room room;
+
+    private Seat seat;
+
+    @BeforeEach
+    void setUp() {
+        seatSearchIndex = new SeatSearchIndex();
+        bookingLottery = new BookingLottery(seatService, seatSearchIndex, transactionManager,
+                new SimpleMeterRegistry(), Duration.ofSeconds(5));
+
+        room = new Room();
+        room.setId(1L);
+        room.setType(0);
+
+        seat = new Seat();
+        seat.setId(1L);
+        seat.setRoom(room);
+        seatSearchIndex.load(List.of(room), List.of(seat));
+        when(seatService.resolveTarget(any(Student.class), any(BookingRequest.class))).thenAnswer(invocation ->
+                new SeatService.BookingTarget(1L, Instant.now(), Instant.now().plusSeconds(3600)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        bookingLottery.shutdown();
+    }
+
+    @Test
+    void enter_ShouldReturnNull_WhenRoomHasNoLotteryWindow() throws Exception {
+        assertNull(bookingLottery.enter(student(1L), request()));
+    }
+
+    @Test
+    void enter_ShouldTakeSeatFromHold_WhenOnlyHoldTokenIsSent() throws Exception {
+        BookingRequest request = new BookingRequest();
+        request.setHoldToken("hold-1");
+
+        assertNull(bookingLottery.enter(student(1L), request));
+
+        verify(seatService).resolveTarget(any(Student.class), eq(request));
+    }
+
+    @Test
+    void enter_ShouldNotReadSeat_ForFirstComeFirstServedRoom() throws Exception {
+        assertNull(bookingLottery.enter(student(1L), request()));
+
+        verify(seatService, never()).prepareBooking(any(), any());
+    }
+
+    @Test
+    void putRoom_ShouldFollowLotteryWindowChanges() {
+        room.setLotteryWindow(1);
+        bookingLottery.putRoom(room);
+        assertNotNull(bookingLottery.enter(student(1L), request()));
+
+        room.setLotteryWindow(0);
+        bookingLottery.putRoom(room);
+        assertNull(bookingLottery.enter(student(2L), request()));
+    }
+
+    @Test
+    void enter_ShouldAllocateSeatToExactlyOneEntrant_AfterWindowCloses() throws Exception {
+        room.setLotteryWindow(1);
+        bookingLottery.putRoom(room);
+        AtomicBoolean taken = new AtomicBoolean();
+        when(seatService.prepareBooking(any(Student.class), any(BookingRequest.class))).thenAnswer(invocation -> {
+            if (!taken.compareAndSet(false, true)) {
+                throw new BookingConflictException("Seat is already booked for this time");
+            }
+            return new SeatService.PreparedBooking(invocation.getArgument(0), seat,
+                    Instant.now(), Instant.now().plusSeconds(3600), null);
+        });
+        when(seatService.writeBooking(any())).thenReturn(new Booking());
+
+        List<CompletableFuture<Void>> results = new ArrayList<>();
+        for (long id = 1; id <= 5; id++) {
+            results.add(bookingLottery.enter(student(id), request()));
+        }
+
+        int won = 0;
+        int lost = 0;
+        for (CompletableFuture<Void> result : results) {
+            try {
+                result.get(5, TimeUnit.SECONDS);
+                won++;
+            } catch (ExecutionException e) {
+                assertInstanceOf(BookingConflictException.class, e.getCause());
+                lost++;
+            }
+        }
+        assertEquals(1, won);
+        assertEquals(4, lost);
+        verify(seatService, times(1)).writeBooking(any());
+        verify(seatService, times(1)).confirmBooking(any(), any());
+    }
+
+    private Student student(Long id) {
+        Student student = new Student();
+        student.setId(id);
+        student.setType(0);
+        return student;
+    }
+
+    private BookingRequest request() {
+        BookingRequest request = new BookingRequest();
+        request.setSeatId(1L);
+        request.setStartTime(System.currentTimeMillis());
+        request.setEndTime(System.currentTimeMillis() + 3_600_000);
+        return request;
+    }
+}
@@ -1,5 +1,6 @@
 package com.studyroom.service;
 
+import com.studyroom.dto.SeatBookings;
 import com.studyroom.model.*;
 import com.studyroom.repository.BookingRepository;
 import com.studyroom.repository.SeatRepository;
@@ -103,6 +104,23 @@ public class BookingServiceTest {
         verify(bookingRepository, times(1)).findTodayBookingsBySeatId(eq(seatId), any(Instant.class), any(Instant.class));
     }
 
+    @Test
+    void getSeatMap_ShouldGroupRoomBookingsBySeat() {
+        Seat emptySeat = new Seat();
+        emptySeat.setId(2L);
+        emptySeat.setRoom(testRoom);
+        when(seatRepository.findWithRoomByRoomId(testRoom.getId())).thenReturn(List.of(testSeat, emptySeat));
+        when(bookingRepository.findRoomBookingsBetween(eq(testRoom.getId()), any(Instant.class), any(Instant.class)))
+                .thenReturn(Collections.singletonList(testBooking));
+
+        List<SeatBookings> result = bookingService.getSeatMap(testRoom.getId());
+
+        assertEquals(2, result.size());
+        assertEquals(List.of(testBooking), result.get(0).getBookings());
+        assertTrue(result.get(1).getBookings().isEmpty());
+        verify(bookingRepository, never()).findTodayBookingsBySeatId(anyLong(), any(), any());
+    }
+
     @Test
     void getAllBookingsByStudentId_ShouldReturnBookingsForStudent() {
         Long studentId = testStudent.getId();
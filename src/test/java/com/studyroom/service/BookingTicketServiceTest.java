@@ -0,0 +1,160 @@
+package com.studyroom.service;
+
+import com.studyroom.dto.BookingRequest;
+import com.studyroom.dto.BookingTicket;
+import com.studyroom.exception.BookingConflictException;
+import com.studyroom.exception.ServiceOverloadedException;
+import com.studyroom.model.Student;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.servlet.resource.NoResourceFoundException;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class BookingTicketServiceTest {
+
+    @Mock
+    private BookingWriter bookingWriter;
+
+    @Mock
+    private BookingLottery bookingLottery;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private BookingTicketService bookingTicketService;
+
+    private Student student;
+
+    private BookingRequest bookingRequest;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        bookingTicketService = new BookingTicketService(bookingWriter, bookingLottery, meterRegistry, 1, 100, Duration.ofMinutes(10));
+
+        student = new Student();
+        student.setId(1L);
+        student.setUsername("student");
+
+        bookingRequest = new BookingRequest();
+        bookingRequest.setSeatId(1L);
+        bookingRequest.setStartTime(System.currentTimeMillis());
+        bookingRequest.setEndTime(System.currentTimeMillis() + 3_600_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        bookingTicketService.shutdown();
+    }
+
+    @Test
+    void submit_ShouldReturnPendingTicket_ThenBooked() throws Exception {
+        when(bookingWriter.submit(student, bookingRequest)).thenReturn(CompletableFuture.completedFuture(null));
+
+        BookingTicket ticket = bookingTicketService.submit(student, bookingRequest);
+
+        assertEquals(BookingTicket.Status.PENDING, ticket.getStatus());
+        assertEquals(BookingTicket.Status.BOOKED, awaitResult(ticket.getTicketId()).getStatus());
+        verify(bookingWriter).submit(student, bookingRequest);
+        verify(bookingWriter, never()).write(any(Student.class), any(BookingRequest.class));
+    }
+
+    @Test
+    void submit_ShouldRejectTicket_WhenSeatConflicts() throws Exception {
+        doThrow(new BookingConflictException("Seat is already booked for this time"))
+                .when(bookingWriter).submit(any(Student.class), any(BookingRequest.class));
+
+        BookingTicket ticket = awaitResult(bookingTicketService.submit(student, bookingRequest).getTicketId());
+
+        assertEquals(BookingTicket.Status.REJECTED, ticket.getStatus());
+        assertEquals("Seat is already booked for this time", ticket.getMessage());
+    }
+
+    @Test
+    void submit_ShouldThrowOverloaded_WhenQueueIsFull() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return CompletableFuture.completedFuture(null);
+        }).when(bookingWriter).submit(any(Student.class), any(BookingRequest.class));
+
+        // 一个在处理，一个在排队
+        bookingTicketService.submit(student, bookingRequest);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        bookingTicketService.submit(student, bookingRequest);
+
+        assertThrows(ServiceOverloadedException.class, () -> bookingTicketService.submit(student, bookingRequest));
+        assertEquals(1.0, meterRegistry.get("studyroom.booking.async.rejected").counter().count());
+        release.countDown();
+    }
+
+    @Test
+    void submit_ShouldNotWaitForWriter_BeforeHandingOverNextBooking() throws Exception {
+        CompletableFuture<Void> first = new CompletableFuture<>();
+        CompletableFuture<Void> second = new CompletableFuture<>();
+        when(bookingWriter.submit(any(Student.class), any(BookingRequest.class))).thenReturn(first, second);
+
+        BookingTicket firstTicket = bookingTicketService.submit(student, bookingRequest);
+        BookingTicket secondTicket = bookingTicketService.submit(student, bookingRequest);
+
+        // 第一个预约尚未写入时第二个已交给写入器，二者可以合并到同一批
+        verify(bookingWriter, timeout(5000).times(2)).submit(student, bookingRequest);
+        assertEquals(BookingTicket.Status.PENDING, bookingTicketService.getTicket(student, firstTicket.getTicketId()).getStatus());
+        second.complete(null);
+        first.completeExceptionally(new BookingConflictException("Seat is already booked for this time"));
+
+        assertEquals(BookingTicket.Status.BOOKED, awaitResult(secondTicket.getTicketId()).getStatus());
+        assertEquals(BookingTicket.Status.REJECTED, awaitResult(firstTicket.getTicketId()).getStatus());
+    }
+
+    @Test
+    void submit_ShouldRejectWithoutEvictingPendingTickets_WhenTicketTableIsFull() throws Exception {
+        BookingTicketService small = new BookingTicketService(bookingWriter, bookingLottery, meterRegistry,
+                10, 2, Duration.ofMinutes(10));
+        try {
+            when(bookingWriter.submit(any(Student.class), any(BookingRequest.class))).thenReturn(new CompletableFuture<>());
+            BookingTicket first = small.submit(student, bookingRequest);
+            BookingTicket second = small.submit(student, bookingRequest);
+
+            assertThrows(ServiceOverloadedException.class, () -> small.submit(student, bookingRequest));
+            assertEquals(BookingTicket.Status.PENDING, small.getTicket(student, first.getTicketId()).getStatus());
+            assertEquals(BookingTicket.Status.PENDING, small.getTicket(student, second.getTicketId()).getStatus());
+        } finally {
+            small.shutdown();
+        }
+    }
+
+    @Test
+    void getTicket_ShouldHideOtherStudentsTickets() {
+        BookingTicket ticket = bookingTicketService.submit(student, bookingRequest);
+        Student other = new Student();
+        other.setId(2L);
+
+        assertThrows(NoResourceFoundException.class, () -> bookingTicketService.getTicket(other, ticket.getTicketId()));
+    }
+
+    private BookingTicket awaitResult(String ticketId) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        BookingTicket ticket = bookingTicketService.getTicket(student, ticketId);
+        while (ticket.getStatus() == BookingTicket.Status.PENDING && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            ticket = bookingTicketService.getTicket(student, ticketId);
+        }
+        return ticket;
+    }
+}
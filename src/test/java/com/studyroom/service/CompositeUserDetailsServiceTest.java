@@ -0,0 +1,78 @@
+package com.studyroom.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.time.Duration;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class CompositeUserDetailsServiceTest {
+
+    @Mock
+    private AdminService adminService;
+
+    @Mock
+    private StudentService studentService;
+
+    private UserDetailsCache userDetailsCache;
+
+    private CompositeUserDetailsService compositeUserDetailsService;
+
+    private UserDetails studentDetails;
+
+    @BeforeEach
+    void setUp() {
+        userDetailsCache = new UserDetailsCache(100, Duration.ofMinutes(10));
+        compositeUserDetailsService = new CompositeUserDetailsService(adminService, studentService, userDetailsCache);
+        studentDetails = new User("student", "encodedPassword",
+                Collections.singletonList(new SimpleGrantedAuthority("ROLE_STUDENT")));
+    }
+
+    @Test
+    void loadUserByUsername_ShouldHitDatabaseOnce_ForRepeatedLookups() {
+        when(adminService.loadUserByUsername("student")).thenThrow(new UsernameNotFoundException("Admin not found"));
+        when(studentService.loadUserByUsername("student")).thenReturn(studentDetails);
+
+        UserDetails first = compositeUserDetailsService.loadUserByUsername("student");
+        UserDetails second = compositeUserDetailsService.loadUserByUsername("student");
+
+        assertEquals("student", first.getUsername());
+        assertEquals("encodedPassword", second.getPassword());
+        verify(adminService, times(1)).loadUserByUsername("student");
+        verify(studentService, times(1)).loadUserByUsername("student");
+    }
+
+    @Test
+    void loadUserByUsername_ShouldReturnCopy_SoErasedCredentialsDoNotLeakIntoCache() {
+        when(adminService.loadUserByUsername("student")).thenThrow(new UsernameNotFoundException("Admin not found"));
+        when(studentService.loadUserByUsername("student")).thenReturn(studentDetails);
+
+        User first = (User) compositeUserDetailsService.loadUserByUsername("student");
+        first.eraseCredentials();
+
+        assertEquals("encodedPassword", compositeUserDetailsService.loadUserByUsername("student").getPassword());
+    }
+
+    @Test
+    void evict_ShouldForceReload() {
+        when(adminService.loadUserByUsername("student")).thenThrow(new UsernameNotFoundException("Admin not found"));
+        when(studentService.loadUserByUsername("student")).thenReturn(studentDetails);
+
+        compositeUserDetailsService.loadUserByUsername("student");
+        userDetailsCache.evict("student");
+        compositeUserDetailsService.loadUserByUsername("student");
+
+        verify(studentService, times(2)).loadUserByUsername("student");
+    }
+}
@@ -0,0 +1,126 @@
+package com.studyroom.service;
+
+import com.studyroom.exception.LoginThrottledException;
+import com.studyroom.exception.ServiceOverloadedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class LoginServiceTest {
+
+    @Mock
+    private AuthenticationManager authenticationManager;
+
+    @Mock
+    private Authentication authentication;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private LoginAttemptService loginAttemptService;
+
+    private LoginService loginService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        loginAttemptService = new LoginAttemptService(meterRegistry, Duration.ofMinutes(1), 3, 50, 1000);
+        loginService = new LoginService(authenticationManager, loginAttemptService, meterRegistry,
+                1, 1, Duration.ofSeconds(5));
+    }
+
+    @AfterEach
+    void tearDown() {
+        loginService.shutdown();
+    }
+
+    @Test
+    void authenticate_ShouldReturnAuthentication_WhenCredentialsValid() {
+        when(authenticationManager.authenticate(any(UsernamePasswordAuthenticationToken.class)))
+                .thenReturn(authentication);
+
+        assertSame(authentication, loginService.authenticate("student", "password", "10.0.0.1"));
+        assertEquals(1, meterRegistry.get("studyroom.login.latency").tag("outcome", "success").timer().count());
+    }
+
+    @Test
+    void authenticate_ShouldPropagateBadCredentials() {
+        when(authenticationManager.authenticate(any(UsernamePasswordAuthenticationToken.class)))
+                .thenThrow(new BadCredentialsException("Bad credentials"));
+
+        assertThrows(BadCredentialsException.class, () -> loginService.authenticate("student", "wrong", "10.0.0.1"));
+    }
+
+    @Test
+    void authenticate_ShouldRejectImmediately_WhenPoolAndQueueAreFull() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(authenticationManager.authenticate(any(UsernamePasswordAuthenticationToken.class)))
+                .thenAnswer(invocation -> {
+                    started.countDown();
+                    release.await(5, TimeUnit.SECONDS);
+                    return authentication;
+                });
+
+        // 一个占用线程，一个占用队列
+        Thread first = new Thread(() -> loginService.authenticate("a", "password", "10.0.0.1"));
+        first.start();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Thread second = new Thread(() -> loginService.authenticate("b", "password", "10.0.0.1"));
+        second.start();
+        while (second.isAlive() && meterRegistry.get("studyroom.login.queue.size").gauge().value() < 1) {
+            Thread.onSpinWait();
+        }
+
+        assertThrows(ServiceOverloadedException.class, () -> loginService.authenticate("c", "password", "10.0.0.1"));
+        assertEquals(1.0, meterRegistry.get("studyroom.login.rejected").counter().count());
+
+        release.countDown();
+        first.join();
+        second.join();
+    }
+
+    @Test
+    void authenticate_ShouldSkipHashing_AfterTooManyFailures() {
+        when(authenticationManager.authenticate(any(UsernamePasswordAuthenticationToken.class)))
+                .thenThrow(new BadCredentialsException("Bad credentials"));
+
+        for (int i = 0; i < 3; i++) {
+            assertThrows(BadCredentialsException.class, () -> loginService.authenticate("student", "wrong", "10.0.0.1"));
+        }
+
+        assertThrows(LoginThrottledException.class, () -> loginService.authenticate("student", "wrong", "10.0.0.1"));
+        verify(authenticationManager, times(3)).authenticate(any(UsernamePasswordAuthenticationToken.class));
+        assertEquals(1.0, meterRegistry.get("studyroom.login.throttled").counter().count());
+    }
+
+    @Test
+    void authenticate_ShouldClearUserFailures_AfterSuccess() {
+        when(authenticationManager.authenticate(any(UsernamePasswordAuthenticationToken.class)))
+                .thenThrow(new BadCredentialsException("Bad credentials"))
+                .thenThrow(new BadCredentialsException("Bad credentials"))
+                .thenReturn(authentication);
+
+        assertThrows(BadCredentialsException.class, () -> loginService.authenticate("student", "wrong", "10.0.0.1"));
+        assertThrows(BadCredentialsException.class, () -> loginService.authenticate("student", "wrong", "10.0.0.1"));
+        loginService.authenticate("student", "password", "10.0.0.1");
+
+        assertFalse(loginAttemptService.isBlocked("student", "10.0.0.1"));
+    }
+}
@@ -0,0 +1,63 @@
+package com.studyroom.service;
+
+import com.studyroom.dto.RoomAvailability;
+import com.studyroom.dto.SeatStatusCount;
+import com.studyroom.model.Seat;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RoomOccupancyCountersTest {
+
+    private RoomOccupancyCounters counters;
+
+    @BeforeEach
+    void setUp() {
+        counters = new RoomOccupancyCounters();
+        counters.load(List.of(1L, 2L), List.of(
+                new SeatStatusCount(1L, Seat.SeatStatus.AVAILABLE, 5L),
+                new SeatStatusCount(1L, Seat.SeatStatus.OCCUPIED, 2L),
+                new SeatStatusCount(1L, Seat.SeatStatus.UNAVAILABLE, 1L)));
+    }
+
+    @Test
+    void load_ShouldIncludeRoomsWithoutSeats() {
+        assertEquals(5L, counters.available(1L));
+        assertEquals(0L, counters.available(2L));
+        assertEquals(2, counters.snapshot().size());
+    }
+
+    @Test
+    void transition_ShouldMoveSeatBetweenCounters() {
+        counters.transition(1L, Seat.SeatStatus.AVAILABLE, Seat.SeatStatus.OCCUPIED);
+        counters.transition(1L, Seat.SeatStatus.OCCUPIED, Seat.SeatStatus.AVAILABLE, 3);
+
+        RoomAvailability room = counters.snapshot().stream()
+                .filter(availability -> availability.getRoomId().equals(1L))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(7L, room.getAvailableCount());
+        assertEquals(0L, room.getOccupiedCount());
+    }
+
+    @Test
+    void transition_ShouldCountAddedAndRemovedSeats() {
+        counters.transition(2L, null, Seat.SeatStatus.AVAILABLE);
+        counters.transition(1L, Seat.SeatStatus.AVAILABLE, null);
+        counters.transition(1L, Seat.SeatStatus.UNAVAILABLE, null);
+
+        assertEquals(1L, counters.available(2L));
+        assertEquals(4L, counters.available(1L));
+    }
+
+    @Test
+    void removeRoom_ShouldDropCounters() {
+        counters.removeRoom(1L);
+
+        assertEquals(0L, counters.available(1L));
+        assertEquals(1, counters.snapshot().size());
+    }
+}
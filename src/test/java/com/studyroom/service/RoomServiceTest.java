@@ -8,6 +8,7 @@ import com.studyroom.model.Student;
 import com.studyroom.repository.BookingRepository;
 import com.studyroom.repository.RoomRepository;
 import com.studyroom.repository.SeatRepository;
+import com.studyroom.repository.SlotClaimRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -20,9 +21,13 @@ import java.time.LocalDateTime;
 import java.time.ZoneOffset; 
 import java.util.*;
 import com.studyroom.dto.RoomRequest; // Added import
+import com.studyroom.dto.RoomAvailability;
+import com.studyroom.dto.RoomSeatCount;
+import com.studyroom.dto.SeatStatusCount;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -37,6 +42,27 @@ public class RoomServiceTest {
     @Mock
     private BookingRepository bookingRepository;
 
+    @Mock
+    private BookingIntervalIndex bookingIntervalIndex;
+
+    @Mock
+    private SlotClaimRepository slotClaimRepository;
+
+    @Mock
+    private RoomOccupancyCounters roomOccupancyCounters;
+
+    @Mock
+    private SeatMapSnapshots seatMapSnapshots;
+
+    @Mock
+    private SeatSlotBitmaps seatSlotBitmaps;
+
+    @Mock
+    private SeatSearchIndex seatSearchIndex;
+
+    @Mock
+    private BookingLottery bookingLottery;
+
     @InjectMocks
     private RoomService roomService;
 
@@ -222,31 +248,48 @@ public class RoomServiceTest {
     }
 
     @Test
-    void getRoomsWithAvailableSeats_ShouldReturnRoomsWithCounts() {
+    void getRoomsWithAvailableSeats_ShouldReturnCountsFromMemory() {
         // 设置模拟行为
-        List<Room> rooms = Collections.singletonList(testRoom);
-        when(roomRepository.findAll()).thenReturn(rooms);
-
-        List<Seat> seats = new ArrayList<>();
-        for (int i = 0; i < 5; i++) {
-            Seat seat = new Seat();
-            seat.setStatus(Seat.SeatStatus.AVAILABLE);
-            seats.add(seat);
-        }
-        when(seatRepository.findByRoomId(1L)).thenReturn(seats);
+        when(roomOccupancyCounters.snapshot()).thenReturn(List.of(new RoomAvailability(1L, 5L, 3L)));
 
         // 执行测试
-        Map<Room, Long> result = roomService.getRoomsWithAvailableSeats();
+        Map<Long, Long> result = roomService.getRoomsWithAvailableSeats();
 
         // 验证结果
         assertEquals(1, result.size());
-        assertEquals(5L, result.get(testRoom));
+        assertEquals(5L, result.get(1L));
+        verifyNoInteractions(roomRepository, seatRepository);
+    }
+
+    @Test
+    void loadOccupancyCounters_ShouldUseAggregateQuery() {
+        List<SeatStatusCount> counts = List.of(new SeatStatusCount(1L, Seat.SeatStatus.AVAILABLE, 5L));
+        when(roomRepository.findAll()).thenReturn(List.of(testRoom));
+        when(seatRepository.countSeatsByRoomAndStatus()).thenReturn(counts);
+
+        roomService.loadOccupancyCounters();
+
+        verify(roomOccupancyCounters).load(List.of(1L), counts);
+        verify(seatRepository, never()).findByRoomId(anyLong());
+    }
+
+    @Test
+    void getSeatCounts_ShouldIndexCountsByRoom() {
+        when(seatRepository.countSeatsByRoom(Seat.SeatStatus.AVAILABLE))
+                .thenReturn(List.of(new RoomSeatCount(1L, 8L, 5L), new RoomSeatCount(2L, 3L, 0L)));
+
+        Map<Long, RoomSeatCount> result = roomService.getSeatCounts();
+
+        assertEquals(2, result.size());
+        assertEquals(8L, result.get(1L).getSeatCount());
+        assertEquals(0L, result.get(2L).getAvailableCount());
     }
 
     @Test
     void searchSeats_ShouldReturnMatchingSeats() {
         // 设置模拟行为
-        when(seatRepository.searchSeats("test")).thenReturn(Collections.singletonList(testSeat));
+        when(seatSearchIndex.searchText("test", 50)).thenReturn(List.of(testSeat.getId()));
+        when(seatRepository.findAllById(List.of(testSeat.getId()))).thenReturn(Collections.singletonList(testSeat));
 
         // 执行测试
         List<Seat> result = roomService.searchSeats("test");
@@ -256,6 +299,33 @@ public class RoomServiceTest {
         assertEquals(testSeat.getId(), result.get(0).getId());
     }
 
+    @Test
+    void searchSeats_ShouldKeepIndexRanking() {
+        Seat other = new Seat();
+        other.setId(2L);
+        when(seatSearchIndex.searchText("a", 2)).thenReturn(List.of(2L, testSeat.getId()));
+        when(seatRepository.findAllById(List.of(2L, testSeat.getId()))).thenReturn(List.of(testSeat, other));
+
+        List<Seat> result = roomService.searchSeats("a", 2);
+
+        assertEquals(List.of(2L, testSeat.getId()), result.stream().map(Seat::getId).toList());
+    }
+
+    @Test
+    void searchSeats_ShouldNotQuerySeats_WhenNothingMatches() {
+        when(seatSearchIndex.searchText("zzz", 50)).thenReturn(List.of());
+
+        assertTrue(roomService.searchSeats("zzz").isEmpty());
+        verifyNoInteractions(seatRepository);
+    }
+
+    @Test
+    void searchSeats_ShouldRejectInvalidLimit() {
+        assertThrows(IllegalArgumentException.class, () -> roomService.searchSeats("a", 0));
+        assertThrows(IllegalArgumentException.class, () -> roomService.searchSeats("a", 101));
+        verifyNoInteractions(seatSearchIndex, seatRepository);
+    }
+
     /* // Method bookSeat is commented out or signature changed in RoomService
     @Test
     void bookSeat_ShouldCreateBooking() {
@@ -0,0 +1,106 @@
+package com.studyroom.service;
+
+import com.studyroom.dto.SeatHold;
+import com.studyroom.exception.BookingConflictException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SeatHoldRegistryTest {
+
+    private BookingIntervalIndex bookingIntervalIndex;
+
+    private SeatHoldRegistry seatHoldRegistry;
+
+    private Instant start;
+
+    private Instant end;
+
+    @BeforeEach
+    void setUp() {
+        bookingIntervalIndex = new BookingIntervalIndex();
+        seatHoldRegistry = new SeatHoldRegistry(bookingIntervalIndex, Duration.ofSeconds(60), 100);
+        start = Instant.now().plusSeconds(3600);
+        end = start.plusSeconds(3600);
+    }
+
+    @Test
+    void hold_ShouldRejectOverlappingHold_FromAnotherStudent() {
+        seatHoldRegistry.hold(1L, 1L, start, end);
+
+        BookingConflictException exception = assertThrows(BookingConflictException.class,
+                () -> seatHoldRegistry.hold(1L, 2L, start.plusSeconds(1800), end.plusSeconds(1800)));
+        assertEquals("Seat is held by another student", exception.getMessage());
+        assertDoesNotThrow(() -> seatHoldRegistry.hold(1L, 2L, end, end.plusSeconds(3600)));
+    }
+
+    @Test
+    void hold_ShouldReject_WhenSlotAlreadyBooked() {
+        bookingIntervalIndex.reserve(1L, 3L, start, end);
+
+        BookingConflictException exception = assertThrows(BookingConflictException.class,
+                () -> seatHoldRegistry.hold(1L, 1L, start, end));
+        assertEquals("Seat is already booked for this time", exception.getMessage());
+    }
+
+    @Test
+    void hold_ShouldReplacePreviousHold_OfSameStudent() {
+        SeatHold first = seatHoldRegistry.hold(1L, 1L, start, end);
+        seatHoldRegistry.hold(2L, 1L, start, end);
+
+        assertNull(seatHoldRegistry.find(first.getHoldToken(), 1L));
+        assertEquals(1, seatHoldRegistry.size());
+        assertDoesNotThrow(() -> seatHoldRegistry.ensureNotHeld(1L, 2L, start, end));
+    }
+
+    @Test
+    void ensureNotHeld_ShouldIgnoreOwnAndExpiredHolds() {
+        SeatHoldRegistry shortLived = new SeatHoldRegistry(bookingIntervalIndex, Duration.ZERO, 100);
+        shortLived.hold(1L, 1L, start, end);
+        seatHoldRegistry.hold(1L, 1L, start, end);
+
+        assertDoesNotThrow(() -> shortLived.ensureNotHeld(1L, 2L, start, end));
+        assertDoesNotThrow(() -> seatHoldRegistry.ensureNotHeld(1L, 1L, start, end));
+        assertThrows(BookingConflictException.class, () -> seatHoldRegistry.ensureNotHeld(1L, 2L, start, end));
+    }
+
+    @Test
+    void find_ShouldOnlyReturnOwnHold() {
+        SeatHold hold = seatHoldRegistry.hold(1L, 1L, start, end);
+
+        assertSame(hold, seatHoldRegistry.find(hold.getHoldToken(), 1L));
+        assertNull(seatHoldRegistry.find(hold.getHoldToken(), 2L));
+        assertFalse(seatHoldRegistry.release(hold.getHoldToken(), 2L));
+        assertTrue(seatHoldRegistry.release(hold.getHoldToken(), 1L));
+        assertEquals(0, seatHoldRegistry.size());
+    }
+
+    @Test
+    void release_ShouldDropSeatEntry_WhenLastHoldIsRemoved() {
+        SeatHold first = seatHoldRegistry.hold(1L, 1L, start, end);
+        seatHoldRegistry.hold(2L, 2L, start, end);
+        assertEquals(2, seatHoldRegistry.seatCount());
+
+        seatHoldRegistry.release(first.getHoldToken(), 1L);
+        seatHoldRegistry.hold(3L, 2L, start, end);
+
+        assertEquals(1, seatHoldRegistry.seatCount());
+    }
+
+    @Test
+    void reserve_ShouldRejectSlotHeldByAnotherStudent_AndKeepIndexUntouched() {
+        seatHoldRegistry.hold(1L, 1L, start, end);
+
+        BookingConflictException exception = assertThrows(BookingConflictException.class,
+                () -> seatHoldRegistry.reserve(1L, 2L, start, end));
+        assertEquals("Seat is held by another student", exception.getMessage());
+        assertFalse(bookingIntervalIndex.overlapsSeat(1L, start, end));
+
+        assertNotNull(seatHoldRegistry.reserve(1L, 1L, start, end));
+        assertTrue(bookingIntervalIndex.overlapsSeat(1L, start, end));
+    }
+}
@@ -0,0 +1,83 @@
+package com.studyroom.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SeatMapSnapshotsTest {
+
+    private SeatMapSnapshots snapshots;
+    private AtomicInteger builds;
+
+    @BeforeEach
+    void setUp() {
+        snapshots = new SeatMapSnapshots(new ObjectMapper());
+        builds = new AtomicInteger();
+    }
+
+    @Test
+    void seatMap_ShouldReuseSnapshot_WhileVersionUnchanged() {
+        SeatMapSnapshots.Snapshot first = snapshots.seatMap(1L, this::build);
+        SeatMapSnapshots.Snapshot second = snapshots.seatMap(1L, this::build);
+
+        assertSame(first, second);
+        assertEquals(1, builds.get());
+        assertEquals(first.etag(), snapshots.seatMapETag(1L));
+    }
+
+    @Test
+    void roomChanged_ShouldInvalidateOnlyThatRoom() {
+        SeatMapSnapshots.Snapshot room1 = snapshots.seatMap(1L, this::build);
+        SeatMapSnapshots.Snapshot room2 = snapshots.seatMap(2L, this::build);
+        String roomsETag = snapshots.roomsETag();
+
+        snapshots.roomChanged(1L);
+
+        assertNotEquals(room1.etag(), snapshots.seatMapETag(1L));
+        assertEquals(room2.etag(), snapshots.seatMapETag(2L));
+        assertNotEquals(roomsETag, snapshots.roomsETag());
+        assertNotSame(room1, snapshots.seatMap(1L, this::build));
+        assertSame(room2, snapshots.seatMap(2L, this::build));
+    }
+
+    @Test
+    void seatMap_ShouldNotCacheAsCurrent_WhenChangedDuringBuild() {
+        SeatMapSnapshots.Snapshot stale = snapshots.seatMap(1L, () -> {
+            snapshots.roomChanged(1L);
+            return build();
+        });
+
+        assertNotEquals(stale.etag(), snapshots.seatMapETag(1L));
+        assertNotSame(stale, snapshots.seatMap(1L, this::build));
+        assertEquals(2, builds.get());
+    }
+
+    @Test
+    void roomsChanged_ShouldNotAffectSeatMaps() {
+        String seatMapETag = snapshots.seatMapETag(1L);
+        String roomsETag = snapshots.roomsETag();
+
+        snapshots.roomsChanged();
+
+        assertEquals(seatMapETag, snapshots.seatMapETag(1L));
+        assertNotEquals(roomsETag, snapshots.roomsETag());
+    }
+
+    @Test
+    void eTags_ShouldNotMatchAcrossInstances_WithSameVersions() {
+        SeatMapSnapshots restarted = new SeatMapSnapshots(new ObjectMapper());
+
+        assertNotEquals(snapshots.seatMapETag(1L), restarted.seatMapETag(1L));
+        assertNotEquals(snapshots.roomsETag(), restarted.roomsETag());
+        assertNotEquals(snapshots.seatMap(1L, this::build).etag(), restarted.seatMap(1L, this::build).etag());
+    }
+
+    private Object build() {
+        return Map.of("build", builds.incrementAndGet());
+    }
+}
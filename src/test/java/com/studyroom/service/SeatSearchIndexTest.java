@@ -0,0 +1,146 @@
+package com.studyroom.service;
+
+import com.studyroom.dto.SeatCandidate;
+import com.studyroom.model.Room;
+import com.studyroom.model.Seat;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SeatSearchIndexTest {
+
+    private SeatSearchIndex index;
+    private Room library;
+    private Room lab;
+
+    @BeforeEach
+    void setUp() {
+        index = new SeatSearchIndex();
+        library = room(1L, 0, "Library");
+        lab = room(2L, 1, "Science Building");
+        index.load(List.of(library, lab), List.of(
+                seat(10L, library, true),
+                seat(11L, library, false),
+                seat(20L, lab, true),
+                seat(21L, lab, true)));
+    }
+
+    @Test
+    void search_ShouldFilterByTypeAndSocket() {
+        assertEquals(List.of(10L), ids(index.search(List.of(0), true, null, candidate -> true, 10)));
+        assertEquals(List.of(10L, 11L), ids(index.search(List.of(0), false, null, candidate -> true, 10)));
+        assertEquals(List.of(10L, 20L, 21L), ids(index.search(List.of(0, 1), true, null, candidate -> true, 10)));
+    }
+
+    @Test
+    void search_ShouldFilterByLocation_IgnoringCase() {
+        assertEquals(List.of(20L, 21L), ids(index.search(List.of(0, 1), true, " science building", candidate -> true, 10)));
+        assertTrue(index.search(List.of(0, 1), true, "Gym", candidate -> true, 10).isEmpty());
+    }
+
+    @Test
+    void search_ShouldApplyAvailabilityAndLimit() {
+        List<SeatCandidate> result = index.search(List.of(0, 1), true, null,
+                candidate -> !candidate.getSeatId().equals(10L), 1);
+
+        assertEquals(List.of(20L), ids(result));
+        assertEquals("Science Building", result.get(0).getLocation());
+    }
+
+    @Test
+    void search_ShouldStopChecking_OnceLimitIsReached() {
+        List<Long> checked = new ArrayList<>();
+
+        List<SeatCandidate> result = index.search(List.of(0, 1), false, null, candidate -> {
+            checked.add(candidate.getSeatId());
+            return !candidate.getSeatId().equals(11L);
+        }, 2);
+
+        assertEquals(List.of(10L, 20L), ids(result));
+        assertEquals(List.of(10L, 11L, 20L), checked);
+    }
+
+    @Test
+    void putRoom_ShouldRebucketSeats_WhenTypeChanges() {
+        lab.setType(0);
+        index.putRoom(lab);
+
+        assertEquals(List.of(10L, 20L, 21L), ids(index.search(List.of(0), true, null, candidate -> true, 10)));
+        assertTrue(index.search(List.of(1), true, null, candidate -> true, 10).isEmpty());
+    }
+
+    @Test
+    void search_ShouldSkipUnavailableSeatsAndClosedRooms() {
+        Seat closed = seat(10L, library, true);
+        closed.setStatus(Seat.SeatStatus.UNAVAILABLE);
+        index.putSeat(closed);
+        lab.setStatus(1);
+        index.putRoom(lab);
+
+        assertTrue(index.search(List.of(0, 1), true, null, candidate -> true, 10).isEmpty());
+    }
+
+    @Test
+    void removeRoom_ShouldDropItsSeats() {
+        index.removeRoom(lab.getId());
+        index.removeSeat(11L);
+
+        assertEquals(1, index.size());
+        assertEquals(List.of(10L), ids(index.search(List.of(0, 1), false, null, candidate -> true, 10)));
+    }
+
+    @Test
+    void searchText_ShouldMatchSubstringsOfRoomNameLocationAndSeatNumber() {
+        assertEquals(List.of(20L, 21L), index.searchText("ence bui", 10));
+        assertEquals(List.of(10L, 11L, 20L, 21L), index.searchText("room", 10));
+        assertEquals(List.of(21L), index.searchText("s21", 10));
+        assertTrue(index.searchText("gym", 10).isEmpty());
+        assertTrue(index.searchText(" ", 10).isEmpty());
+    }
+
+    @Test
+    void searchText_ShouldRankSeatNumberAboveRoomName_AndApplyLimit() {
+        // "2" 是座位 20、21 编号的一部分，也是自习室 2 名称的一部分
+        assertEquals(List.of(20L, 21L), index.searchText("2", 2));
+        assertEquals(List.of(10L), index.searchText("S10", 1));
+    }
+
+    @Test
+    void searchText_ShouldFollowRenamesAndDeletes() {
+        library.setName("Reading Hall");
+        index.putRoom(library);
+        index.removeSeat(21L);
+
+        assertEquals(List.of(10L, 11L), index.searchText("reading", 10));
+        assertEquals(List.of(20L), index.searchText("room", 10));
+    }
+
+    private static List<Long> ids(List<SeatCandidate> candidates) {
+        return candidates.stream().map(SeatCandidate::getSeatId).toList();
+    }
+
+    private static Room room(Long id, int type, String location) {
+        Room room = new Room();
+        room.setId(id);
+        room.setName("Room " + id);
+        room.setType(type);
+        room.setLocation(location);
+        room.setStatus(0);
+        return room;
+    }
+
+    private static Seat seat(Long id, Room room, boolean hasSocket) {
+        Seat seat = new Seat();
+        seat.setId(id);
+        seat.setSeatName("S" + id);
+        seat.setSeatNumber("S" + id);
+        seat.setRoom(room);
+        seat.setHasSocket(hasSocket);
+        seat.setStatus(Seat.SeatStatus.AVAILABLE);
+        return seat;
+    }
+}
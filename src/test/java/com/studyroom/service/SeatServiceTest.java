@@ -1,21 +1,31 @@
 package com.studyroom.service;
 
 import com.studyroom.dto.BookingRequest;
+import com.studyroom.dto.SeatCandidate;
+import com.studyroom.dto.SeatHold;
 import com.studyroom.dto.SeatRequest;
+import com.studyroom.exception.BookingConflictException;
 import com.studyroom.model.*;
 import com.studyroom.repository.BookingRepository;
 import com.studyroom.repository.RoomRepository;
 import com.studyroom.repository.SeatRepository;
+import com.studyroom.repository.SlotClaimRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpMethod;
 import org.springframework.security.access.AccessDeniedException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.servlet.resource.NoResourceFoundException;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.Collections;
 import java.util.List;
@@ -23,6 +33,7 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 
@@ -38,6 +49,30 @@ public class SeatServiceTest {
     @Mock
     private BookingRepository bookingRepository;
 
+    @Mock
+    private SlotClaimRepository slotClaimRepository;
+
+    @Mock
+    private BookingLifecycleScheduler bookingLifecycleScheduler;
+
+    @Mock
+    private RoomOccupancyCounters roomOccupancyCounters;
+
+    @Mock
+    private SeatMapSnapshots seatMapSnapshots;
+
+    @Spy
+    private BookingIntervalIndex bookingIntervalIndex = new BookingIntervalIndex();
+
+    @Spy
+    private SeatSlotBitmaps seatSlotBitmaps = new SeatSlotBitmaps();
+
+    @Spy
+    private SeatSearchIndex seatSearchIndex = new SeatSearchIndex();
+
+    @Spy
+    private SeatHoldRegistry seatHoldRegistry = new SeatHoldRegistry(bookingIntervalIndex, Duration.ofSeconds(60), 100);
+
     @InjectMocks
     private SeatService seatService;
 
@@ -104,6 +139,25 @@ public class SeatServiceTest {
         verify(seatRepository).save(any(Seat.class));
     }
 
+    @Test
+    void updateSeat_ShouldUpdateCounters_OnlyAfterCommit() {
+        seatRequest.setStatus(Seat.SeatStatus.UNAVAILABLE);
+        when(seatRepository.findById(testSeat.getId())).thenReturn(Optional.of(testSeat));
+        when(seatRepository.save(any(Seat.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            seatService.updateSeat(testSeat.getId(), seatRequest);
+
+            verifyNoInteractions(roomOccupancyCounters);
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            verify(roomOccupancyCounters).transition(testRoom.getId(),
+                    Seat.SeatStatus.AVAILABLE, Seat.SeatStatus.UNAVAILABLE);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
     @Test
     void addSeat_ShouldThrowException_WhenRoomNotFound() {
         when(roomRepository.findById(seatRequest.getRoomId())).thenReturn(Optional.empty());
@@ -126,16 +180,177 @@ public class SeatServiceTest {
     @Test
     void bookSeat_ShouldBookSeat_WhenSeatAvailableAndStudentTypeMatches() throws NoResourceFoundException {
         when(seatRepository.findById(bookingRequest.getSeatId())).thenReturn(Optional.of(testSeat));
-        when(seatRepository.save(any(Seat.class))).thenReturn(testSeat);
-        when(bookingRepository.save(any(Booking.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(seatRepository.compareAndSetStatus(testSeat.getId(), Seat.SeatStatus.AVAILABLE, Seat.SeatStatus.OCCUPIED))
+                .thenReturn(1);
+        when(bookingRepository.save(any(Booking.class))).thenAnswer(invocation -> {
+            Booking booking = invocation.getArgument(0);
+            booking.setId(10L);
+            return booking;
+        });
 
         seatService.bookSeat(testStudent, bookingRequest);
 
-        assertEquals(Seat.SeatStatus.OCCUPIED, testSeat.getStatus());
-        verify(seatRepository).save(testSeat);
+        verify(seatRepository).compareAndSetStatus(testSeat.getId(), Seat.SeatStatus.AVAILABLE, Seat.SeatStatus.OCCUPIED);
+        verify(bookingRepository).save(any(Booking.class));
+        verify(slotClaimRepository).saveAllAndFlush(anyList());
+        verify(bookingLifecycleScheduler).schedule(any(Booking.class));
+        verify(roomOccupancyCounters).transition(testRoom.getId(), Seat.SeatStatus.AVAILABLE, Seat.SeatStatus.OCCUPIED);
+        assertTrue(bookingIntervalIndex.overlapsSeat(testSeat.getId(),
+                Instant.ofEpochMilli(bookingRequest.getStartTime()), Instant.ofEpochMilli(bookingRequest.getEndTime())));
+        assertFalse(seatSlotBitmaps.isFree(testRoom.getId(), testSeat.getId(), seatSlotBitmaps.window(
+                Instant.ofEpochMilli(bookingRequest.getStartTime()), Instant.ofEpochMilli(bookingRequest.getEndTime()))));
+    }
+
+    @Test
+    void bookSeat_ShouldRejectWithoutReadingSeat_WhenHeldByAnotherStudent() {
+        seatHoldRegistry.hold(testSeat.getId(), 2L,
+                Instant.ofEpochMilli(bookingRequest.getStartTime()), Instant.ofEpochMilli(bookingRequest.getEndTime()));
+
+        BookingConflictException exception = assertThrows(BookingConflictException.class,
+                () -> seatService.bookSeat(testStudent, bookingRequest));
+        assertEquals("Seat is held by another student", exception.getMessage());
+        verify(seatRepository, never()).findById(any());
+    }
+
+    @Test
+    void bookSeat_ShouldConvertHold_IntoBooking() throws NoResourceFoundException {
+        when(seatRepository.findById(testSeat.getId())).thenReturn(Optional.of(testSeat));
+        when(bookingRepository.save(any(Booking.class))).thenAnswer(invocation -> {
+            Booking booking = invocation.getArgument(0);
+            booking.setId(12L);
+            return booking;
+        });
+        SeatHold hold = seatService.holdSeat(testStudent, bookingRequest);
+
+        BookingRequest confirm = new BookingRequest();
+        confirm.setHoldToken(hold.getHoldToken());
+        seatService.bookSeat(testStudent, confirm);
+
+        ArgumentCaptor<Booking> captor = ArgumentCaptor.forClass(Booking.class);
+        verify(bookingRepository).save(captor.capture());
+        assertEquals(hold.getStartTime(), captor.getValue().getStartTime());
+        assertEquals(hold.getEndTime(), captor.getValue().getEndTime());
+        assertEquals(0, seatHoldRegistry.size());
+    }
+
+    @Test
+    void holdSeat_ShouldRejectMissingTimes_WithoutReadingSeat() {
+        bookingRequest.setEndTime(null);
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> seatService.holdSeat(testStudent, bookingRequest));
+        assertEquals("Seat id, start time and end time are required", exception.getMessage());
+        verifyNoInteractions(seatRepository);
+        assertEquals(0, seatHoldRegistry.size());
+    }
+
+    @Test
+    void holdSeat_ShouldReject_WhenLongerThanMaxBookingTime() {
+        testSeat.setMaxBookingTime(30);
+        when(seatRepository.findById(testSeat.getId())).thenReturn(Optional.of(testSeat));
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> seatService.holdSeat(testStudent, bookingRequest));
+        assertEquals("Booking exceeds the maximum booking time of 30 minutes", exception.getMessage());
+        assertEquals(0, seatHoldRegistry.size());
+    }
+
+    @Test
+    void bookSeat_ShouldReject_WhenHoldExpired() {
+        bookingRequest.setHoldToken("missing");
+
+        BookingConflictException exception = assertThrows(BookingConflictException.class,
+                () -> seatService.bookSeat(testStudent, bookingRequest));
+        assertEquals("Seat hold has expired", exception.getMessage());
+    }
+
+    @Test
+    void bookSeat_ShouldAllowNonOverlappingSlot_OnOccupiedSeat() throws NoResourceFoundException {
+        testSeat.setStatus(Seat.SeatStatus.OCCUPIED);
+        Instant start = Instant.ofEpochMilli(bookingRequest.getEndTime());
+        bookingIntervalIndex.reserve(testSeat.getId(), 2L, start.minusSeconds(7200), start);
+        when(seatRepository.findById(bookingRequest.getSeatId())).thenReturn(Optional.of(testSeat));
+        when(bookingRepository.save(any(Booking.class))).thenAnswer(invocation -> {
+            Booking booking = invocation.getArgument(0);
+            booking.setId(11L);
+            return booking;
+        });
+
+        bookingRequest.setStartTime(start.toEpochMilli());
+        bookingRequest.setEndTime(start.plusSeconds(3600).toEpochMilli());
+        seatService.bookSeat(testStudent, bookingRequest);
+
         verify(bookingRepository).save(any(Booking.class));
     }
 
+    @Test
+    void bookSeat_ShouldThrowConflict_WhenSeatSlotOverlaps() {
+        testSeat.setStatus(Seat.SeatStatus.OCCUPIED);
+        Instant start = Instant.ofEpochMilli(bookingRequest.getStartTime());
+        bookingIntervalIndex.reserve(testSeat.getId(), 2L, start.plusSeconds(1800), start.plusSeconds(5400));
+        when(seatRepository.findById(bookingRequest.getSeatId())).thenReturn(Optional.of(testSeat));
+
+        BookingConflictException exception = assertThrows(BookingConflictException.class,
+                () -> seatService.bookSeat(testStudent, bookingRequest));
+        assertEquals("Seat is already booked for this time", exception.getMessage());
+        verify(bookingRepository, never()).save(any(Booking.class));
+    }
+
+    @Test
+    void bookSeat_ShouldThrowConflict_WhenStudentHasOverlappingBookingOnAnotherSeat() {
+        Instant start = Instant.ofEpochMilli(bookingRequest.getStartTime());
+        bookingIntervalIndex.reserve(99L, testStudent.getId(), start.minusSeconds(600), start.plusSeconds(600));
+        when(seatRepository.findById(bookingRequest.getSeatId())).thenReturn(Optional.of(testSeat));
+
+        BookingConflictException exception = assertThrows(BookingConflictException.class,
+                () -> seatService.bookSeat(testStudent, bookingRequest));
+        assertEquals("You already have a booking during this time", exception.getMessage());
+        verify(bookingRepository, never()).save(any(Booking.class));
+    }
+
+    @Test
+    void bookSeat_ShouldThrowConflict_WhenSlotAlreadyClaimedByAnotherInstance() {
+        when(seatRepository.findById(bookingRequest.getSeatId())).thenReturn(Optional.of(testSeat));
+        when(bookingRepository.save(any(Booking.class))).thenAnswer(invocation -> {
+            Booking booking = invocation.getArgument(0);
+            booking.setId(12L);
+            return booking;
+        });
+        when(slotClaimRepository.saveAllAndFlush(anyList()))
+                .thenThrow(new DataIntegrityViolationException("duplicate key"));
+
+        BookingConflictException exception = assertThrows(BookingConflictException.class,
+                () -> seatService.bookSeat(testStudent, bookingRequest));
+
+        assertEquals("Seat is already booked for this time", exception.getMessage());
+        assertEquals(0, bookingIntervalIndex.size());
+        assertFalse(bookingIntervalIndex.overlapsSeat(testSeat.getId(),
+                Instant.ofEpochMilli(bookingRequest.getStartTime()), Instant.ofEpochMilli(bookingRequest.getEndTime())));
+    }
+
+    @Test
+    void bookSeat_ShouldRejectBooking_LongerThanSeatMaximum() {
+        testSeat.setMaxBookingTime(60);
+        bookingRequest.setEndTime(bookingRequest.getStartTime() + 90 * 60_000L);
+        when(seatRepository.findById(bookingRequest.getSeatId())).thenReturn(Optional.of(testSeat));
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> seatService.bookSeat(testStudent, bookingRequest));
+        assertEquals("Booking exceeds the maximum booking time of 60 minutes", exception.getMessage());
+        assertEquals(0, bookingIntervalIndex.size());
+    }
+
+    @Test
+    void bookSeat_ShouldReleaseSlot_WhenSaveFails() {
+        when(seatRepository.findById(bookingRequest.getSeatId())).thenReturn(Optional.of(testSeat));
+        when(bookingRepository.save(any(Booking.class))).thenThrow(new RuntimeException("database down"));
+
+        assertThrows(RuntimeException.class, () -> seatService.bookSeat(testStudent, bookingRequest));
+
+        assertFalse(bookingIntervalIndex.overlapsSeat(testSeat.getId(),
+                Instant.ofEpochMilli(bookingRequest.getStartTime()), Instant.ofEpochMilli(bookingRequest.getEndTime())));
+    }
+
     @Test
     void bookSeat_ShouldThrowNoResourceFoundException_WhenSeatNotFound() {
         when(seatRepository.findById(bookingRequest.getSeatId())).thenReturn(Optional.empty());
@@ -159,7 +374,7 @@ public class SeatServiceTest {
 
     @Test
     void bookSeat_ShouldThrowRuntimeException_WhenSeatNotAvailable() {
-        testSeat.setStatus(Seat.SeatStatus.OCCUPIED);
+        testSeat.setStatus(Seat.SeatStatus.UNAVAILABLE);
         when(seatRepository.findById(bookingRequest.getSeatId())).thenReturn(Optional.of(testSeat));
 
         RuntimeException exception = assertThrows(RuntimeException.class,
@@ -177,6 +392,7 @@ public class SeatServiceTest {
 
         assertEquals(0, testBooking.getStatus()); // 0 for CANCELLED
         verify(bookingRepository).save(testBooking);
+        verify(slotClaimRepository).deleteByBookingId(testBooking.getId());
     }
 
     @Test
@@ -190,19 +406,24 @@ public class SeatServiceTest {
 
     @Test
     void temporaryLeaveSeat_ShouldUpdateBookingStatus() {
-        when(bookingRepository.findByStudentOrderByStartTimeDesc(testStudent))
-                .thenReturn(Collections.singletonList(testBooking)); // testBooking's seat ID matches testSeat.getId()
+        when(bookingRepository.findFirstByStudentIdAndSeatIdAndStatusInOrderByStartTimeAsc(
+                testStudent.getId(), testSeat.getId(), List.of(1, 2, 3)))
+                .thenReturn(Optional.of(testBooking)); // testBooking's seat ID matches testSeat.getId()
         when(bookingRepository.save(any(Booking.class))).thenReturn(testBooking);
 
         seatService.temporaryLeaveSeat(testStudent, testSeat.getId());
 
         assertEquals(3, testBooking.getStatus()); // 3 for TEMPORARY_LEAVE
+        assertNotNull(testBooking.getLeaveTime());
         verify(bookingRepository).save(testBooking);
+        verify(bookingLifecycleScheduler).schedule(testBooking);
     }
 
     @Test
     void temporaryLeaveSeat_ShouldThrowException_WhenNoActiveBookingForSeat() {
-        when(bookingRepository.findByStudentOrderByStartTimeDesc(testStudent)).thenReturn(Collections.emptyList());
+        when(bookingRepository.findFirstByStudentIdAndSeatIdAndStatusInOrderByStartTimeAsc(
+                testStudent.getId(), testSeat.getId(), List.of(1, 2, 3)))
+                .thenReturn(Optional.empty());
 
         RuntimeException exception = assertThrows(RuntimeException.class,
                 () -> seatService.temporaryLeaveSeat(testStudent, testSeat.getId()));
@@ -211,8 +432,9 @@ public class SeatServiceTest {
 
     @Test
     void checkInSeat_ShouldUpdateBookingStatus() {
-        when(bookingRepository.findByStudentOrderByStartTimeDesc(testStudent))
-                .thenReturn(Collections.singletonList(testBooking));
+        when(bookingRepository.findFirstByStudentIdAndSeatIdAndStatusInOrderByStartTimeAsc(
+                testStudent.getId(), testSeat.getId(), List.of(1, 2, 3)))
+                .thenReturn(Optional.of(testBooking));
         when(bookingRepository.save(any(Booking.class))).thenReturn(testBooking);
 
         seatService.checkInSeat(testStudent, testSeat.getId());
@@ -224,19 +446,48 @@ public class SeatServiceTest {
     @Test
     void releaseSeat_ShouldUpdateBookingAndSeatStatus() {
         when(seatRepository.findById(testSeat.getId())).thenReturn(Optional.of(testSeat));
-        when(bookingRepository.findByStudentOrderByStartTimeDesc(testStudent))
-                .thenReturn(Collections.singletonList(testBooking));
+        when(bookingRepository.findById(testBooking.getId())).thenReturn(Optional.of(testBooking));
         when(bookingRepository.save(any(Booking.class))).thenReturn(testBooking);
-        when(seatRepository.save(any(Seat.class))).thenReturn(testSeat);
+        bookingIntervalIndex.load(List.of(testBooking));
+        seatSlotBitmaps.load(List.of(testBooking));
 
         seatService.releaseSeat(testStudent, testSeat.getId());
 
-        assertEquals(2, testBooking.getStatus());
-        assertEquals(Seat.SeatStatus.AVAILABLE, testSeat.getStatus());
+        assertTrue(seatSlotBitmaps.isFree(testRoom.getId(), testSeat.getId(),
+                seatSlotBitmaps.window(testBooking.getStartTime(), testBooking.getEndTime())));
+        assertEquals(4, testBooking.getStatus());
         verify(bookingRepository).save(testBooking);
-        verify(seatRepository).save(testSeat);
+        verify(slotClaimRepository).deleteByBookingId(testBooking.getId());
+        verify(seatRepository).compareAndSetStatus(testSeat.getId(), Seat.SeatStatus.OCCUPIED, Seat.SeatStatus.AVAILABLE);
+        assertEquals(0, bookingIntervalIndex.size());
     }
 
+    @Test
+    void releaseSeat_ShouldKeepSeatOccupied_WhenOtherBookingsRemain() {
+        when(seatRepository.findById(testSeat.getId())).thenReturn(Optional.of(testSeat));
+        when(bookingRepository.findById(testBooking.getId())).thenReturn(Optional.of(testBooking));
+        when(bookingRepository.save(any(Booking.class))).thenReturn(testBooking);
+        bookingIntervalIndex.load(List.of(testBooking));
+        bookingIntervalIndex.reserve(testSeat.getId(), 2L, testBooking.getEndTime(), testBooking.getEndTime().plusSeconds(3600));
+
+        seatService.releaseSeat(testStudent, testSeat.getId());
+
+        verify(seatRepository, never()).compareAndSetStatus(anyLong(), any(), any());
+    }
+
+    @Test
+    void checkInSeat_ShouldUseIndexedBooking_WithoutQueryingHistory() {
+        when(bookingRepository.findById(testBooking.getId())).thenReturn(Optional.of(testBooking));
+        when(bookingRepository.save(any(Booking.class))).thenReturn(testBooking);
+        bookingIntervalIndex.load(List.of(testBooking));
+
+        seatService.checkInSeat(testStudent, testSeat.getId());
+
+        assertEquals(2, testBooking.getStatus());
+        verify(bookingRepository, never()).findFirstByStudentIdAndSeatIdAndStatusInOrderByStartTimeAsc(
+                anyLong(), anyLong(), any());
+        verify(bookingRepository, never()).findByStudentOrderByStartTimeDesc(any());
+    }
 
     @Test
     void deleteSeat_ShouldSuccess_WhenSeatExists() {
@@ -248,6 +499,7 @@ public class SeatServiceTest {
         assertDoesNotThrow(() -> seatService.deleteSeat(seatIdToDelete));
 
         verify(bookingRepository, times(1)).deleteBySeatId(seatIdToDelete);
+        verify(slotClaimRepository, times(1)).deleteBySeatId(seatIdToDelete);
         verify(seatRepository, times(1)).delete(testSeat);
     }
 
@@ -334,4 +586,51 @@ public class SeatServiceTest {
         assertEquals(testSeat.getId(), actualSeats.get(0).getId());
         verify(seatRepository).findByRoomId(roomId);
     }
-}
\ No newline at end of file
+
+    @Test
+    void findFreeSeats_ShouldExcludeBookedAndUnavailableSeats() {
+        Seat bookedSeat = testSeat;
+        Seat freeSeat = new Seat();
+        freeSeat.setId(2L);
+        freeSeat.setRoom(testRoom);
+        freeSeat.setStatus(Seat.SeatStatus.OCCUPIED);
+        Seat closedSeat = new Seat();
+        closedSeat.setId(3L);
+        closedSeat.setRoom(testRoom);
+        closedSeat.setStatus(Seat.SeatStatus.UNAVAILABLE);
+        seatSearchIndex.load(List.of(testRoom), List.of(bookedSeat, freeSeat, closedSeat));
+        seatSlotBitmaps.load(List.of(testBooking));
+
+        List<SeatCandidate> free = seatService.findFreeSeats(testRoom.getId(),
+                testBooking.getStartTime(), testBooking.getEndTime());
+
+        assertEquals(List.of(freeSeat.getId()), free.stream().map(SeatCandidate::getSeatId).toList());
+        verifyNoInteractions(bookingRepository);
+        verify(seatRepository, never()).findByRoomId(any());
+    }
+
+    @Test
+    void searchFreeSeats_ShouldReturnIndexedSeatsFreeInWindow() {
+        Seat otherSeat = new Seat();
+        otherSeat.setId(2L);
+        otherSeat.setSeatName("A2");
+        otherSeat.setRoom(testRoom);
+        otherSeat.setStatus(Seat.SeatStatus.AVAILABLE);
+        otherSeat.setHasSocket(true);
+        seatSearchIndex.load(List.of(testRoom), List.of(testSeat, otherSeat));
+        seatSlotBitmaps.load(List.of(testBooking));
+
+        List<SeatCandidate> result = seatService.searchFreeSeats(testStudent, null, true, null,
+                testBooking.getStartTime(), testBooking.getEndTime(), 10);
+
+        assertEquals(1, result.size());
+        assertEquals(otherSeat.getId(), result.get(0).getSeatId());
+        verifyNoInteractions(seatRepository, bookingRepository);
+    }
+
+    @Test
+    void searchFreeSeats_ShouldRejectRoomTypeNotOpenToStudent() {
+        assertThrows(AccessDeniedException.class, () -> seatService.searchFreeSeats(testStudent, 2, false, null,
+                testBooking.getStartTime(), testBooking.getEndTime(), 10));
+    }
+}
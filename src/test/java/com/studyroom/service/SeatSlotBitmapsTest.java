@@ -0,0 +1,85 @@
+package com.studyroom.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SeatSlotBitmapsTest {
+
+    private SeatSlotBitmaps bitmaps;
+    private Instant dayStart;
+
+    @BeforeEach
+    void setUp() {
+        bitmaps = new SeatSlotBitmaps();
+        dayStart = LocalDate.now().plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant();
+    }
+
+    @Test
+    void isFree_ShouldDetectOverlap_AtSlotGranularity() {
+        bitmaps.occupy(1L, 10L, at(14, 0), at(16, 0));
+
+        assertFalse(bitmaps.isFree(1L, 10L, bitmaps.window(at(15, 0), at(15, 30))));
+        assertFalse(bitmaps.isFree(1L, 10L, bitmaps.window(at(13, 0), at(14, 5))));
+        assertTrue(bitmaps.isFree(1L, 10L, bitmaps.window(at(16, 0), at(17, 0))));
+        assertTrue(bitmaps.isFree(1L, 11L, bitmaps.window(at(14, 0), at(16, 0))));
+        assertTrue(bitmaps.isFree(2L, 10L, bitmaps.window(at(14, 0), at(16, 0))));
+    }
+
+    @Test
+    void occupy_ShouldRoundPartialSlotsOutward() {
+        bitmaps.occupy(1L, 10L, at(14, 10), at(14, 20));
+
+        assertFalse(bitmaps.isFree(1L, 10L, bitmaps.window(at(14, 0), at(14, 5))));
+        assertFalse(bitmaps.isFree(1L, 10L, bitmaps.window(at(14, 25), at(14, 30))));
+        assertTrue(bitmaps.isFree(1L, 10L, bitmaps.window(at(14, 30), at(15, 0))));
+    }
+
+    @Test
+    void release_ShouldClearOnlyThatBooking() {
+        bitmaps.occupy(1L, 10L, at(9, 0), at(10, 0));
+        bitmaps.occupy(1L, 10L, at(10, 0), at(11, 0));
+
+        bitmaps.release(1L, 10L, at(9, 0), at(10, 0));
+
+        assertTrue(bitmaps.isFree(1L, 10L, bitmaps.window(at(9, 0), at(10, 0))));
+        assertFalse(bitmaps.isFree(1L, 10L, bitmaps.window(at(10, 0), at(11, 0))));
+    }
+
+    @Test
+    void occupy_ShouldSplitBookingsAcrossMidnight() {
+        bitmaps.occupy(1L, 10L, at(23, 0), at(23, 0).plus(2, ChronoUnit.HOURS));
+
+        assertFalse(bitmaps.isFree(1L, 10L, bitmaps.window(at(23, 30), at(23, 45))));
+        assertFalse(bitmaps.isFree(1L, 10L, bitmaps.window(dayStart.plus(1, ChronoUnit.DAYS),
+                dayStart.plus(1, ChronoUnit.DAYS).plus(15, ChronoUnit.MINUTES))));
+        assertEquals(2, bitmaps.size());
+    }
+
+    @Test
+    void removeSeat_ShouldDropItsSlots() {
+        bitmaps.occupy(1L, 10L, at(8, 0), at(12, 0));
+
+        bitmaps.removeSeat(1L, 10L);
+
+        assertTrue(bitmaps.isFree(1L, 10L, bitmaps.window(at(8, 0), at(12, 0))));
+        assertEquals(0, bitmaps.size());
+    }
+
+    @Test
+    void window_ShouldRejectInvalidRange() {
+        assertThrows(IllegalArgumentException.class, () -> bitmaps.window(at(12, 0), at(12, 0)));
+        assertThrows(IllegalArgumentException.class,
+                () -> bitmaps.window(at(12, 0), at(12, 0).plus(32, ChronoUnit.DAYS)));
+    }
+
+    private Instant at(int hour, int minute) {
+        return dayStart.plus(hour, ChronoUnit.HOURS).plus(minute, ChronoUnit.MINUTES);
+    }
+}
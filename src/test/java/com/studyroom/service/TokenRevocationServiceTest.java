@@ -0,0 +1,89 @@
+package com.studyroom.service;
+
+import com.studyroom.model.RevokedToken;
+import com.studyroom.repository.RevokedTokenRepository;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class TokenRevocationServiceTest {
+
+    @Mock
+    private RevokedTokenRepository revokedTokenRepository;
+
+    private TokenRevocationService tokenRevocationService;
+
+    @BeforeEach
+    void setUp() {
+        tokenRevocationService = new TokenRevocationService(revokedTokenRepository, 1000, 0.01);
+    }
+
+    private Claims claims(String jti, Instant expiresAt) {
+        return Jwts.claims().id(jti).subject("student").expiration(Date.from(expiresAt)).build();
+    }
+
+    @Test
+    void revoke_ShouldPersistAndRejectToken() {
+        Instant expiresAt = Instant.now().plusSeconds(3600);
+
+        tokenRevocationService.revoke(claims("jti-1", expiresAt));
+
+        assertTrue(tokenRevocationService.isRevoked("jti-1"));
+        assertFalse(tokenRevocationService.isRevoked("jti-2"));
+        assertFalse(tokenRevocationService.isRevoked(null));
+        verify(revokedTokenRepository).save(any(RevokedToken.class));
+    }
+
+    @Test
+    void revoke_ShouldTakeEffectOnlyAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            tokenRevocationService.revoke(claims("jti-1", Instant.now().plusSeconds(3600)));
+
+            assertFalse(tokenRevocationService.isRevoked("jti-1"));
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            assertTrue(tokenRevocationService.isRevoked("jti-1"));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void load_ShouldRestoreRevocationsFromDatabase() {
+        when(revokedTokenRepository.findByExpiresAtAfter(any(Instant.class)))
+                .thenReturn(List.of(new RevokedToken("jti-1", Instant.now().plusSeconds(3600))));
+
+        tokenRevocationService.load();
+
+        assertTrue(tokenRevocationService.isRevoked("jti-1"));
+    }
+
+    @Test
+    void purgeExpired_ShouldForgetExpiredTokens() {
+        when(revokedTokenRepository.findByExpiresAtAfter(any(Instant.class)))
+                .thenReturn(List.of(new RevokedToken("jti-old", Instant.now().minusSeconds(1)),
+                        new RevokedToken("jti-live", Instant.now().plusSeconds(3600))));
+        tokenRevocationService.load();
+
+        tokenRevocationService.purgeExpired();
+
+        assertFalse(tokenRevocationService.isRevoked("jti-old"));
+        assertTrue(tokenRevocationService.isRevoked("jti-live"));
+        verify(revokedTokenRepository).deleteExpired(any(Instant.class));
+    }
+}
@@ -0,0 +1,69 @@
+package com.studyroom.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.studyroom.config.JacksonConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ErrorResponseWriterTest {
+
+    private ObjectMapper objectMapper;
+
+    private ErrorResponseWriter errorResponseWriter;
+
+    @BeforeEach
+    void setUp() {
+        objectMapper = new JacksonConfig().objectMapper();
+        errorResponseWriter = new ErrorResponseWriter(objectMapper);
+    }
+
+    @Test
+    void writeUnauthorized_ShouldWriteCachedBody() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        errorResponseWriter.writeUnauthorized(response);
+
+        assertEquals(401, response.getStatus());
+        assertEquals("application/json;charset=UTF-8", response.getContentType());
+        JsonNode body = objectMapper.readTree(response.getContentAsByteArray());
+        assertEquals(401, body.get("code").asInt());
+        assertEquals("请先登录", body.get("message").asText());
+        assertTrue(body.get("data").isNull());
+    }
+
+    @Test
+    void writeExpiredToken_ShouldKeepFilterResponseFormat() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        errorResponseWriter.writeExpiredToken(response);
+
+        assertEquals(401, response.getStatus());
+        assertEquals("{\"error\":\"Expired Login Token\"}", response.getContentAsString());
+    }
+
+    @Test
+    void write_ShouldSerializeDynamicBody() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        errorResponseWriter.write(response, 409, Map.of("error", "Seat is not available"));
+
+        assertEquals(409, response.getStatus());
+        assertEquals("Seat is not available", objectMapper.readTree(response.getContentAsByteArray()).get("error").asText());
+    }
+
+    @Test
+    void internalError_ShouldReturnApiErrorBytes() throws Exception {
+        ResponseEntity<byte[]> entity = errorResponseWriter.internalError();
+
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, entity.getStatusCode());
+        assertEquals("Internal server error", objectMapper.readTree(entity.getBody()).get("message").asText());
+    }
+}
@@ -0,0 +1,52 @@
+package com.studyroom.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExpiringCacheTest {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.ofEpochMilli(1_000_000L), ZoneOffset.UTC);
+    private static final long LATER = 2_000_000L;
+
+    @Test
+    void put_ShouldEvictEntries_WhenFull() {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(2, CLOCK);
+        cache.put("a", "1", LATER);
+        cache.put("b", "2", LATER);
+
+        assertTrue(cache.put("c", "3", LATER));
+        assertEquals("3", cache.get("c"));
+        assertTrue(cache.evictionCount() > 0);
+    }
+
+    @Test
+    void put_ShouldKeepProtectedEntries_AndRefuse_WhenNothingIsEvictable() {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(2, CLOCK, value -> value.startsWith("done"));
+        cache.put("a", "pending", LATER);
+        cache.put("b", "done", LATER);
+
+        assertTrue(cache.put("c", "pending", LATER));
+        assertEquals("pending", cache.get("a"));
+        assertNull(cache.get("b"));
+
+        assertFalse(cache.put("d", "pending", LATER));
+        assertNull(cache.putIfAbsent("d", "pending", LATER));
+        assertEquals("pending", cache.get("a"));
+        assertEquals("pending", cache.get("c"));
+        // 已有的 key 不需要腾出空间，可以直接更新
+        assertTrue(cache.put("a", "done", LATER));
+    }
+
+    @Test
+    void put_ShouldSkipExpiredEntries() {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(2, CLOCK);
+
+        assertFalse(cache.put("a", "1", CLOCK.millis()));
+        assertNull(cache.get("a"));
+    }
+}
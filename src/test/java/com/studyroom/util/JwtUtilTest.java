@@ -0,0 +1,81 @@
+package com.studyroom.util;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JwtUtilTest {
+
+    private static final String SECRET = "thisIsAVeryLongSecretKeyThatHasAtLeast32BytesForHS256Algorithm12345678";
+
+    private JwtUtil jwtUtil;
+
+    @BeforeEach
+    void setUp() {
+        jwtUtil = new JwtUtil(SECRET, 100);
+    }
+
+    @Test
+    void extractAllClaims_ShouldReturnCachedClaims_ForSameToken() {
+        String token = jwtUtil.generateToken("student");
+
+        Claims first = jwtUtil.extractAllClaims(token);
+        Claims second = jwtUtil.extractAllClaims(token);
+
+        assertEquals("student", first.getSubject());
+        assertSame(first, second);
+    }
+
+    @Test
+    void validateToken_ShouldUseParsedClaims() {
+        String token = jwtUtil.generateToken("student");
+        Claims claims = jwtUtil.extractAllClaims(token);
+
+        assertTrue(jwtUtil.validateToken(claims, "student"));
+        assertFalse(jwtUtil.validateToken(claims, "other"));
+        assertTrue(jwtUtil.validateToken(token, "student"));
+    }
+
+    @Test
+    void extractAllClaims_ShouldThrowExpiredJwtException_WhenTokenExpired() {
+        String expired = Jwts.builder()
+                .subject("student")
+                .issuedAt(new Date(System.currentTimeMillis() - 20_000))
+                .expiration(new Date(System.currentTimeMillis() - 10_000))
+                .signWith(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)))
+                .compact();
+
+        assertThrows(ExpiredJwtException.class, () -> jwtUtil.extractAllClaims(expired));
+        assertThrows(ExpiredJwtException.class, () -> jwtUtil.extractAllClaims(expired));
+    }
+
+    @Test
+    void toPrincipal_ShouldBuildStudentFromClaims() {
+        AuthenticatedUser user = new AuthenticatedUser(7L, PrincipalType.STUDENT, 1, "student", "encoded");
+        Claims claims = jwtUtil.extractAllClaims(jwtUtil.generateToken(user));
+
+        AuthenticatedUser principal = jwtUtil.toPrincipal(claims);
+
+        assertNotNull(principal);
+        assertEquals(7L, principal.getId());
+        assertEquals(PrincipalType.STUDENT, principal.getType());
+        assertEquals(1, principal.getStudentType());
+        assertEquals("student", principal.getUsername());
+        assertEquals("ROLE_STUDENT", principal.getAuthorities().iterator().next().getAuthority());
+    }
+
+    @Test
+    void toPrincipal_ShouldReturnNull_ForLegacyToken() {
+        Claims claims = jwtUtil.extractAllClaims(jwtUtil.generateToken("student"));
+
+        assertNull(jwtUtil.toPrincipal(claims));
+    }
+}
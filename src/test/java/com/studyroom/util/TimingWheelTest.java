@@ -0,0 +1,57 @@
+package com.studyroom.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TimingWheelTest {
+
+    private static final long START = 1_000_000L;
+
+    private TimingWheel<String> wheel;
+
+    @BeforeEach
+    void setUp() {
+        // 10 ms 一格、每层 4 格、2 层，覆盖 160 ms
+        wheel = new TimingWheel<>(10, 4, 2, START);
+    }
+
+    @Test
+    void advance_ShouldReturnItem_OnlyOnceDeadlinePassed() {
+        wheel.schedule(START + 25, "a");
+
+        assertTrue(wheel.advance(START + 20).isEmpty());
+        assertEquals(List.of("a"), wheel.advance(START + 30));
+        assertTrue(wheel.advance(START + 100).isEmpty());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void advance_ShouldCascadeItems_FromHigherLevels() {
+        wheel.schedule(START + 120, "far");
+        wheel.schedule(START + 10, "near");
+
+        assertEquals(List.of("near"), wheel.advance(START + 110));
+        assertEquals(List.of("far"), wheel.advance(START + 120));
+    }
+
+    @Test
+    void advance_ShouldKeepItemsBeyondRange_UntilDue() {
+        wheel.schedule(START + 500, "overflow");
+
+        assertTrue(wheel.advance(START + 490).isEmpty());
+        assertEquals(1, wheel.size());
+        assertEquals(List.of("overflow"), wheel.advance(START + 500));
+    }
+
+    @Test
+    void schedule_ShouldReturnPastDeadline_OnNextAdvance() {
+        wheel.advance(START + 50);
+        wheel.schedule(START, "late");
+
+        assertEquals(List.of("late"), wheel.advance(START + 50));
+    }
+}